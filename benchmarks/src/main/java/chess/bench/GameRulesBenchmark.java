@@ -0,0 +1,83 @@
+package chess.bench;
+
+import chess.ChessBoard;
+import chess.ChessGame;
+import chess.ChessMove;
+import chess.InvalidMoveException;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Check, checkmate, stalemate and game over detection plus making a move.
+ * <p>
+ * The game caches its status, so the "cold" benchmarks swap between two identical boards before
+ * every call to measure a full computation, the "cached" one measures repeated calls between moves.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class GameRulesBenchmark {
+    @Param
+    public Positions position;
+
+    private ChessGame game;
+    private ChessBoard[] boards;
+    private int next;
+    private ChessMove firstMove;
+
+    @Setup
+    public void setUp() {
+        game = position.newGame();
+        boards = new ChessBoard[]{position.newBoard(), position.newBoard()};
+        firstMove = game.legalMoves(game.getTeamTurn()).iterator().next();
+    }
+
+    private ChessGame coldGame() {
+        next ^= 1;
+        game.setBoard(boards[next]);
+        return game;
+    }
+
+    @Benchmark
+    public boolean isInCheck() {
+        return game.isInCheck(game.getTeamTurn());
+    }
+
+    @Benchmark
+    public boolean isInCheckmate() {
+        ChessGame cold = coldGame();
+        return cold.isInCheckmate(cold.getTeamTurn());
+    }
+
+    @Benchmark
+    public boolean isInStalemate() {
+        ChessGame cold = coldGame();
+        return cold.isInStalemate(cold.getTeamTurn());
+    }
+
+    @Benchmark
+    public boolean isGameOverCold() {
+        return coldGame().isGameOver();
+    }
+
+    @Benchmark
+    public boolean hasAnyLegalMove() {
+        return game.hasAnyLegalMove(game.getTeamTurn());
+    }
+
+    @Benchmark
+    public boolean isGameOverCached() {
+        return game.isGameOver();
+    }
+
+    @Benchmark
+    public ChessGame makeMove() throws InvalidMoveException {
+        game.makeMove(firstMove);
+        game.undoMove();
+        return game;
+    }
+}
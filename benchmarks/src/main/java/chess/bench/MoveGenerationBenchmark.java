@@ -0,0 +1,81 @@
+package chess.bench;
+
+import chess.ChessBoard;
+import chess.ChessGame;
+import chess.ChessPiece;
+import chess.ChessPosition;
+import chess.MoveList;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Move generation for every piece of the side to move, through both the Collection based API
+ * and the packed MoveList API.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MoveGenerationBenchmark {
+    @Param
+    public Positions position;
+
+    private ChessGame game;
+    private ChessBoard board;
+    private final MoveList moves = new MoveList();
+
+    @Setup
+    public void setUp() {
+        game = position.newGame();
+        board = game.getBoard();
+    }
+
+    @Benchmark
+    public void pieceMoves(Blackhole blackhole) {
+        for (int row = 1; row <= 8; row++) {
+            for (int col = 1; col <= 8; col++) {
+                ChessPosition square = ChessPosition.of(row, col);
+                ChessPiece piece = board.getPiece(square);
+                if (piece != null && piece.getTeamColor() == game.getTeamTurn()) {
+                    blackhole.consume(piece.pieceMoves(board, square));
+                }
+            }
+        }
+    }
+
+    @Benchmark
+    public int pieceMovesPacked() {
+        moves.clear();
+        for (int square = 0; square < 64; square++) {
+            ChessPiece piece = board.getPiece(ChessPosition.of(square));
+            if (piece != null && piece.getTeamColor() == game.getTeamTurn()) {
+                piece.pieceMoves(board, square, moves);
+            }
+        }
+        return moves.size();
+    }
+
+    @Benchmark
+    public void validMoves(Blackhole blackhole) {
+        for (int row = 1; row <= 8; row++) {
+            for (int col = 1; col <= 8; col++) {
+                ChessPosition square = ChessPosition.of(row, col);
+                ChessPiece piece = board.getPiece(square);
+                if (piece != null && piece.getTeamColor() == game.getTeamTurn()) {
+                    blackhole.consume(game.validMoves(square));
+                }
+            }
+        }
+    }
+
+    @Benchmark
+    public int legalMovesPacked() {
+        moves.clear();
+        game.legalMoves(game.getTeamTurn(), moves);
+        return moves.size();
+    }
+}
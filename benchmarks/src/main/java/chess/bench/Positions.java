@@ -0,0 +1,29 @@
+package chess.bench;
+
+import chess.ChessBoard;
+import chess.ChessGame;
+import chess.Fen;
+
+/**
+ * The positions every benchmark runs over, from a quiet opening to a sparse endgame, as FEN.
+ */
+public enum Positions {
+    OPENING("r1bqkbnr/1ppp1ppp/p1n5/1B2p3/4P3/5N2/PPPP1PPP/RNBQK2R w KQkq - 0 4"),
+    MIDDLEGAME("r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1"),
+    TACTICAL("r3k2r/Pppp1ppp/1b3nbN/nP6/BBP1P3/q4N2/Pp1P2PP/R2Q1RK1 w kq - 0 1"),
+    ENDGAME("8/2p5/3p4/KP5r/1R3p1k/8/4P1P1/8 w - - 0 1");
+
+    private final String fen;
+
+    Positions(String fen) {
+        this.fen = fen;
+    }
+
+    public ChessGame newGame() {
+        return Fen.parse(fen);
+    }
+
+    public ChessBoard newBoard() {
+        return Fen.parseBoard(fen.substring(0, fen.indexOf(' ')));
+    }
+}
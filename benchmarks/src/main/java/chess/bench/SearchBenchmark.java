@@ -0,0 +1,74 @@
+package chess.bench;
+
+import chess.ChessGame;
+import chess.engine.ParallelSearcher;
+import chess.engine.SearchLimits;
+import chess.engine.SearchOptions;
+import chess.engine.SearchResult;
+import chess.engine.Searcher;
+import chess.engine.TranspositionTable;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A fixed depth engine search of each position, the score to watch is the time per search. The
+ * parallel search runs on as many threads as the threads parameter, all sharing one table. Set
+ * pruning to false to measure the plain alpha-beta search without null moves, reductions,
+ * futility pruning and razoring.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SearchBenchmark {
+    @Param
+    public Positions position;
+
+    @Param({"4"})
+    public int depth;
+
+    @Param({"4"})
+    public int threads;
+
+    @Param({"true"})
+    public boolean pruning;
+
+    private ChessGame game;
+    private final TranspositionTable table = new TranspositionTable(64);
+    private Searcher searcher;
+    private ParallelSearcher parallelSearcher;
+
+    @Setup
+    public void setUp() {
+        game = position.newGame();
+        SearchOptions options = pruning ? SearchOptions.ALL : SearchOptions.NONE;
+        searcher = new Searcher(table, options);
+        parallelSearcher = new ParallelSearcher(threads, table, options);
+    }
+
+    /**
+     * Every search starts from an empty table, otherwise later searches only read back the first
+     */
+    @Setup(Level.Invocation)
+    public void clearTable() {
+        table.clear();
+    }
+
+    @TearDown
+    public void tearDown() {
+        parallelSearcher.close();
+    }
+
+    @Benchmark
+    public SearchResult search() {
+        return searcher.search(game, SearchLimits.depth(depth));
+    }
+
+    @Benchmark
+    public SearchResult parallelSearch() {
+        return parallelSearcher.search(game, SearchLimits.depth(depth));
+    }
+}
@@ -46,6 +46,7 @@ public class MySQLDataAccess implements DataAccess {
                 .registerTypeAdapter(ChessGame.class, new AdaptChessGame())
                 .registerTypeAdapter(ChessBoard.class, new AdaptChessBoard())
                 .registerTypeAdapter(ChessPosition.class, new AdaptChessPosition())
+                .registerTypeAdapter(ChessPiece.class, new AdaptChessPiece())
                 .create();
     }
     private static class AdaptChessGame implements JsonSerializer<ChessGame>, JsonDeserializer<ChessGame> {
@@ -53,20 +54,31 @@ public class MySQLDataAccess implements DataAccess {
         public JsonElement serialize(ChessGame chessGame, Type type,
             JsonSerializationContext jsonSerializationContext) {
             JsonObject jsonObject = new JsonObject();
-            jsonObject.add("board",
-                    jsonSerializationContext.serialize(chessGame.getBoard()));
-            jsonObject.addProperty("teamTurn", chessGame.getTeamTurn().toString());
+            jsonObject.addProperty("fen", Fen.format(chessGame));
             jsonObject.addProperty("gameOver", chessGame.isGameOver());
             return jsonObject;
         }
 
+        /**
+         * Games are stored as a FEN string, games saved before that have a "board" object and a
+         * "teamTurn" instead
+         */
         @Override
         public ChessGame deserialize(JsonElement jsonElement, Type type,
             JsonDeserializationContext jsonDeserializationContext) throws JsonParseException {
             JsonObject jsonObject = jsonElement.getAsJsonObject();
-            ChessGame game = new ChessGame();
-            game.setBoard(jsonDeserializationContext.deserialize(jsonObject.get("board"), ChessBoard.class));
-            game.setTeamTurn(ChessGame.TeamColor.valueOf(jsonObject.get("teamTurn").getAsString()));
+            ChessGame game;
+            if (jsonObject.has("fen")) {
+                try {
+                    game = Fen.parse(jsonObject.get("fen").getAsString());
+                } catch (IllegalArgumentException e) {
+                    throw new JsonParseException(e.getMessage());
+                }
+            } else {
+                game = new ChessGame();
+                game.setBoard(jsonDeserializationContext.deserialize(jsonObject.get("board"), ChessBoard.class));
+                game.setTeamTurn(ChessGame.TeamColor.valueOf(jsonObject.get("teamTurn").getAsString()));
+            }
             if (jsonObject.has("gameOver")) {
                 game.setGameOver(jsonObject.get("gameOver").getAsBoolean());
             }
@@ -98,7 +110,7 @@ public class MySQLDataAccess implements DataAccess {
                 int row = Integer.parseInt(place[0]);
                 int column = Integer.parseInt(place[1]);
                 ChessPiece piece = jsonDeserializationContext.deserialize(entry.getValue(), ChessPiece.class);
-                board.addPiece(new ChessPosition(row, column), piece);
+                board.addPiece(ChessPosition.of(row, column), piece);
             }
             return board;
         }
@@ -112,7 +124,7 @@ public class MySQLDataAccess implements DataAccess {
             JsonObject jsonObject = jsonElement.getAsJsonObject();
             int row = jsonObject.get("row").getAsInt();
             int column = jsonObject.get("column").getAsInt();
-            return new ChessPosition(row, column);
+            return ChessPosition.of(row, column);
         }
 
         @Override
@@ -125,6 +137,25 @@ public class MySQLDataAccess implements DataAccess {
         }
     }
 
+    private static class AdaptChessPiece implements JsonSerializer<ChessPiece>, JsonDeserializer<ChessPiece> {
+        @Override
+        public ChessPiece deserialize(JsonElement jsonElement, Type type,
+            JsonDeserializationContext jsonDeserializationContext) throws JsonParseException {
+            JsonObject jsonObject = jsonElement.getAsJsonObject();
+            ChessGame.TeamColor color = ChessGame.TeamColor.valueOf(jsonObject.get("color").getAsString());
+            ChessPiece.PieceType pieceType = ChessPiece.PieceType.valueOf(jsonObject.get("type").getAsString());
+            return ChessPiece.of(color, pieceType);
+        }
+
+        @Override
+        public JsonElement serialize(ChessPiece chessPiece,
+            Type type, JsonSerializationContext jsonSerializationContext) {
+            JsonObject jsonObject = new JsonObject();
+            jsonObject.addProperty("color", chessPiece.getTeamColor().toString());
+            jsonObject.addProperty("type", chessPiece.getPieceType().toString());
+            return jsonObject;
+        }
+    }
 
     public void configureDatabase()  throws DataAccessException {
         DatabaseManager.createDatabase();
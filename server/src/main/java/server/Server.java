@@ -11,6 +11,7 @@ import java.util.Map;
 public class Server {
     private final UserService userService;
     private final GameService gameService;
+    private final AnalysisService analysisService;
     private final Gson gson;
 
     public Server() {
@@ -26,6 +27,7 @@ public class Server {
         }
         this.userService = new UserService(dataAccess);
         this.gameService = new GameService(dataAccess);
+        this.analysisService = new AnalysisService(dataAccess);
     }
 
     public int run(int desiredPort) {
@@ -42,6 +44,7 @@ public class Server {
         Spark.post("/game", this::createGame);
         Spark.put("/game", this::joinGame);
         Spark.get("/game", this::listGames);
+        Spark.post("/analysis", this::analyze);
 
         Spark.exception(DataAccessException.class, this::exceptionHandler);
 
@@ -52,6 +55,7 @@ public class Server {
     public void stop() {
         Spark.stop();
         Spark.awaitStop();
+        analysisService.close();
     }
 
 
@@ -59,6 +63,7 @@ public class Server {
         try {
             gameService.clear();
             userService.clear();
+            analysisService.clear();
             response.status(200);
             response.type("application/json");
             return gson.toJson(Map.of("success", true));
@@ -121,6 +126,33 @@ public class Server {
         }
     }
 
+    private Object analyze(Request request, Response response) {
+        try {
+            String authToken = request.headers("Authorization");
+            AnalysisService.AnalysisRequest body = gson.fromJson(request.body(), AnalysisService.AnalysisRequest.class);
+            if (body == null) {
+                return errorResponse(response, 400, "Bad Request");
+            }
+            AnalysisService.AnalysisResult result = analysisService.analyze(new AnalysisService.AnalysisRequest(
+                    authToken, body.fen(), body.gameID(), body.timeMillis()));
+            response.status(200);
+            return gson.toJson(result);
+        } catch (DataAccessException e) {
+            int status = switch (e.getMessage()) {
+                case "Bad Request" -> 400;
+                case "Unauthorized" -> 401;
+                case "Game not found" -> 404;
+                case "Too many requests" -> 429;
+                case "Timed out" -> 503;
+                default -> 500;
+            };
+            if (status == 429 || status == 503) {
+                response.header("Retry-After", "1");
+            }
+            return errorResponse(response, status, e.getMessage());
+        }
+    }
+
     private Object logout(Request request, Response response) {
         try{
             String authToken = request.headers("Authorization");
@@ -184,11 +184,11 @@ public class WebSocketHandler {
             sendError(session, "Invalid move: Missing row or col in positions");
             return null;
         }
-        ChessPosition startPos = new ChessPosition(
+        ChessPosition startPos = ChessPosition.of(
                 startJson.get("row").getAsInt(),
                 startJson.get("col").getAsInt()
         );
-        ChessPosition endPos = new ChessPosition(
+        ChessPosition endPos = ChessPosition.of(
                 endJson.get("row").getAsInt(),
                 endJson.get("col").getAsInt()
         );
@@ -197,7 +197,7 @@ public class WebSocketHandler {
             String promotion = moveJson.get("promotionPiece").getAsString();
             promotionPiece = ChessPiece.PieceType.valueOf(promotion.toUpperCase());
         }
-        return new ChessMove(startPos, endPos, promotionPiece);
+        return ChessMove.of(startPos, endPos, promotionPiece);
     }
 
     private void broadcastMoveUpdate(Session session, Integer gameID, ChessGame game, String username, ChessMove move) throws IOException {
@@ -215,8 +215,8 @@ public class WebSocketHandler {
     }
 
     private ServerMessage createMoveNotification(ChessGame game, String username, ChessMove move) {
-        boolean isGameOver = game.isGameOver();
-        if (!isGameOver) {
+        ChessGame.GameStatus status = game.getStatus();
+        if (!status.isOver()) {
             String startPos = positionToNotation(move.getStartPosition());
             String endPos = positionToNotation(move.getEndPosition());
             String notificationText = String.format("%s moved from %s to %s", username, startPos, endPos);
@@ -225,7 +225,7 @@ public class WebSocketHandler {
 
         ChessGame.TeamColor playerColor = game.getTeamTurn();
         String gameOverText;
-        if (game.isInCheckmate(playerColor)) {
+        if (status == ChessGame.GameStatus.CHECKMATE) {
             String winner = playerColor == ChessGame.TeamColor.WHITE ? "Black" : "White";
             gameOverText = String.format("%s is in checkmate. %s wins!", playerColor, winner);
         } else {
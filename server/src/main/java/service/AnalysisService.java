@@ -0,0 +1,315 @@
+package service;
+
+import chess.Bitbase;
+import chess.Bitboards;
+import chess.ChessBoard;
+import chess.ChessGame;
+import chess.ChessMove;
+import chess.ChessPiece;
+import chess.Fen;
+import chess.engine.SearchController;
+import chess.engine.SearchLimits;
+import chess.engine.SearchProgress;
+import chess.engine.SearchResult;
+import chess.engine.Searcher;
+import chess.engine.TranspositionTable;
+import dataaccess.DataAccess;
+import dataaccess.DataAccessException;
+import model.AuthData;
+import model.GameData;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Runs engine searches for hints and analysis. Searches run on a fixed pool of engine threads,
+ * one per core by default, never on the threads that handle requests. The pool only queues a few
+ * searches per thread and each user may only have a few waiting or running at once; requests past
+ * either limit are turned away with "Too many requests" instead of piling up. Every search has a
+ * time budget that covers its wait in the queue. Results are cached by position along with the
+ * budget they were found with, so asking about the same position again with no more time costs
+ * nothing, while asking with more time searches again.
+ * <p>
+ * Every engine thread searches with the same transposition table, so what one request found helps
+ * the next. The service owns the table and starts a new generation of it once per search.
+ */
+public class AnalysisService implements AutoCloseable {
+    public static final long DEFAULT_TIME_MILLIS = 1_000;
+    public static final long MAX_TIME_MILLIS = 5_000;
+
+    private static final int QUEUED_PER_THREAD = 4;
+    private static final int REQUESTS_PER_USER = 2;
+    private static final int CACHED_RESULTS = 4_096;
+    private static final int TABLE_MEGABYTES = 64;
+    /**
+     * How long past its budget a request waits for a cancelled search to hand back its best move
+     */
+    private static final long GRACE_MILLIS = 500;
+
+    private static final AtomicInteger POOL_NUMBER = new AtomicInteger();
+
+    private final DataAccess dataAccess;
+    private final ThreadPoolExecutor engines;
+    private final TranspositionTable table;
+    private final ThreadLocal<Searcher> searchers;
+    private final int requestsPerUser;
+    private volatile Runnable beforeSearch = () -> { };
+    private final Map<String, Integer> inFlight = new ConcurrentHashMap<>();
+    private final Map<Long, CachedResult> cache = Collections.synchronizedMap(
+            new LinkedHashMap<>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<Long, CachedResult> eldest) {
+                    return size() > CACHED_RESULTS;
+                }
+            });
+
+    public AnalysisService(DataAccess dataAccess) {
+        this(dataAccess, Runtime.getRuntime().availableProcessors(),
+                Runtime.getRuntime().availableProcessors() * QUEUED_PER_THREAD, REQUESTS_PER_USER, TABLE_MEGABYTES);
+    }
+
+    /**
+     * @param threads number of engine threads
+     * @param queued number of searches that may wait for a thread, 0 to turn requests away as soon
+     *               as every thread is busy
+     * @param requestsPerUser number of searches one user may have waiting or running at once
+     * @param tableMegabytes size of the transposition table the engine threads share
+     */
+    public AnalysisService(DataAccess dataAccess, int threads, int queued, int requestsPerUser, int tableMegabytes) {
+        if (threads < 1 || queued < 0 || requestsPerUser < 1) {
+            throw new IllegalArgumentException("Invalid analysis pool size");
+        }
+        this.dataAccess = dataAccess;
+        this.requestsPerUser = requestsPerUser;
+        this.table = new TranspositionTable(tableMegabytes);
+        this.searchers = ThreadLocal.withInitial(() -> new Searcher(table));
+        BlockingQueue<Runnable> queue = queued == 0 ? new SynchronousQueue<>() : new ArrayBlockingQueue<>(queued);
+        String prefix = "analysis-" + POOL_NUMBER.incrementAndGet() + "-engine-";
+        AtomicInteger threadNumber = new AtomicInteger();
+        this.engines = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS, queue, runnable -> {
+            Thread thread = new Thread(runnable, prefix + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }, new ThreadPoolExecutor.AbortPolicy());
+
+        Thread bitbases = new Thread(Bitbase::load, prefix + "bitbases");
+        bitbases.setDaemon(true);
+        bitbases.start();
+    }
+
+    /**
+     * @param fen the position to analyze, or null to analyze a stored game
+     * @param gameID the stored game to analyze when there is no FEN
+     * @param timeMillis the time budget, 0 for the default, at most MAX_TIME_MILLIS
+     */
+    public record AnalysisRequest(String authToken, String fen, int gameID, long timeMillis) {
+    }
+
+    /**
+     * @param move the best move, or null if the game is over
+     * @param score the score for the team to move in centipawns
+     * @param depth the deepest iteration the search finished
+     * @param principalVariation the moves both teams are expected to play, best move first
+     * @param cached true if the result was already known
+     */
+    public record AnalysisResult(ChessMove move, int score, int depth, List<ChessMove> principalVariation,
+                                 boolean cached) {
+    }
+
+    /**
+     * @param budget the time the result was searched with, a request with more time searches again
+     */
+    private record CachedResult(AnalysisResult result, long budget) {
+    }
+
+    /**
+     * Finds the best move of a position
+     *
+     * @param request contains the authentication token, the position and the time budget
+     * @return the best move with its score and expected continuation
+     * @throws DataAccessException if the request is invalid, the user is not authorized, the game
+     * does not exist, the engines are saturated ("Too many requests") or the search could not
+     * start within its budget ("Timed out")
+     */
+    public AnalysisResult analyze(AnalysisRequest request) throws DataAccessException {
+        AuthData auth = validAuthorization(request.authToken());
+        if (request.timeMillis() < 0) {
+            throw new DataAccessException("Bad Request");
+        }
+        ChessGame game = position(request);
+        long key = game.getZobristKey();
+        long budget = request.timeMillis() == 0 ? DEFAULT_TIME_MILLIS : Math.min(request.timeMillis(), MAX_TIME_MILLIS);
+        CachedResult known = cache.get(key);
+        if (known != null && known.budget() >= budget) {
+            AnalysisResult result = known.result();
+            return new AnalysisResult(result.move(), result.score(), result.depth(), result.principalVariation(), true);
+        }
+
+        String username = auth.username();
+        if (inFlight.merge(username, 1, Integer::sum) > requestsPerUser) {
+            release(username);
+            throw new DataAccessException("Too many requests");
+        }
+        try {
+            AnalysisResult result = search(game, budget);
+            if (result.depth() > 0) {
+                cache.put(key, new CachedResult(result, budget));
+            }
+            return result;
+        } finally {
+            release(username);
+        }
+    }
+
+    /**
+     * Clears the cached results
+     */
+    public void clear() {
+        cache.clear();
+    }
+
+    /**
+     * Stops the engine threads, running searches are cancelled when their requests give up on them
+     */
+    @Override
+    public void close() {
+        engines.shutdownNow();
+    }
+
+    /**
+     * Runs the hook on the engine thread before every search, so tests can hold the engines busy
+     */
+    void beforeEverySearch(Runnable hook) {
+        beforeSearch = hook;
+    }
+
+    /**
+     * @return number of users with searches waiting or running
+     */
+    int usersInFlight() {
+        return inFlight.size();
+    }
+
+    /**
+     * Counts one of the user's searches as done, dropping the user once none is left
+     */
+    private void release(String username) {
+        inFlight.computeIfPresent(username, (name, count) -> count == 1 ? null : count - 1);
+    }
+
+    private AnalysisResult search(ChessGame game, long budget) throws DataAccessException {
+        long deadline = System.nanoTime() + budget * 1_000_000L;
+        AtomicReference<SearchProgress> progress = new AtomicReference<>();
+        SearchController controller = new SearchController(progress::set);
+        Future<SearchResult> future;
+        try {
+            future = engines.submit(() -> {
+                beforeSearch.run();
+                long remaining = (deadline - System.nanoTime()) / 1_000_000L;
+                if (remaining <= 0 || controller.isCancelled()) {
+                    return null;
+                }
+                SearchLimits limits = new SearchLimits(SearchLimits.MAX_DEPTH, 0, remaining, remaining / 2);
+                table.newSearch();
+                return searchers.get().search(game, limits, controller);
+            });
+        } catch (RejectedExecutionException e) {
+            throw new DataAccessException("Too many requests");
+        }
+
+        SearchResult result;
+        try {
+            result = future.get(budget + GRACE_MILLIS, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            giveUp(future, controller);
+            throw new DataAccessException("Timed out");
+        } catch (InterruptedException e) {
+            giveUp(future, controller);
+            Thread.currentThread().interrupt();
+            throw new DataAccessException("Timed out");
+        } catch (ExecutionException e) {
+            throw new DataAccessException("Analysis failed");
+        }
+        if (result == null) {
+            throw new DataAccessException("Timed out");
+        }
+        SearchProgress last = progress.get();
+        List<ChessMove> line = last != null && result.move() != null
+                && result.move().equals(last.principalVariation().get(0)) ? last.principalVariation()
+                : result.move() == null ? List.of() : List.of(result.move());
+        return new AnalysisResult(result.move(), result.score(), result.depth(), line, false);
+    }
+
+    /**
+     * Stops a running search and takes a waiting one out of the queue, so it frees its place at once
+     */
+    private void giveUp(Future<SearchResult> future, SearchController controller) {
+        controller.cancel();
+        future.cancel(false);
+        if (future instanceof Runnable task) {
+            engines.remove(task);
+        }
+    }
+
+    private ChessGame position(AnalysisRequest request) throws DataAccessException {
+        if (request.fen() != null && !request.fen().isBlank()) {
+            ChessGame game;
+            try {
+                game = Fen.parse(request.fen().trim());
+            } catch (IllegalArgumentException e) {
+                throw new DataAccessException("Bad Request");
+            }
+            if (!isPlayable(game)) {
+                throw new DataAccessException("Bad Request");
+            }
+            return game;
+        }
+        if (request.gameID() <= 0) {
+            throw new DataAccessException("Bad Request");
+        }
+        GameData game = dataAccess.getGame(request.gameID());
+        if (game == null) {
+            throw new DataAccessException("Game not found");
+        }
+        return game.game().copy();
+    }
+
+    /**
+     * Fen only checks the syntax, the engine also needs one king per team, no pawn on the first or
+     * last row and the team that just moved not left in check
+     */
+    private static boolean isPlayable(ChessGame game) {
+        ChessBoard board = game.getBoard();
+        for (ChessGame.TeamColor color : ChessGame.TeamColor.values()) {
+            if (Long.bitCount(board.getPieces(color, ChessPiece.PieceType.KING)) != 1
+                    || (board.getPieces(color, ChessPiece.PieceType.PAWN) & (Bitboards.RANK_1 | Bitboards.RANK_8)) != 0) {
+                return false;
+            }
+        }
+        ChessGame.TeamColor moved = game.getTeamTurn() == ChessGame.TeamColor.WHITE
+                ? ChessGame.TeamColor.BLACK : ChessGame.TeamColor.WHITE;
+        return !game.isInCheck(moved);
+    }
+
+    private AuthData validAuthorization(String authToken) throws DataAccessException {
+        AuthData authData = dataAccess.getAuthorization(authToken);
+        if (authData == null) {
+            throw new DataAccessException("Unauthorized");
+        }
+        return authData;
+    }
+}
@@ -0,0 +1,160 @@
+package service;
+import chess.ChessGame;
+import chess.Fen;
+import dataaccess.*;
+import org.junit.jupiter.api.*;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+public class AnalysisServiceTest {
+    private static final String KIWIPETE = "r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1";
+
+    private AccessDataInMemory dataInMemory;
+    private UserService userService;
+    private AnalysisService analysisService;
+    private String authToken;
+    @BeforeEach
+    void setUp() throws DataAccessException {
+        dataInMemory = new AccessDataInMemory();
+        userService = new UserService(dataInMemory);
+        analysisService = new AnalysisService(dataInMemory, 1, 1, 1, 8);
+        authToken = register("userTest");
+    }
+
+    @AfterEach
+    void tearDown() {
+        analysisService.close();
+    }
+
+    @Test
+    void analyzesFenAndCachesTheResult() throws DataAccessException {
+        AnalysisService.AnalysisRequest request = new AnalysisService.AnalysisRequest(authToken, KIWIPETE, 0, 300);
+        AnalysisService.AnalysisResult first = analysisService.analyze(request);
+        assertNotNull(first.move());
+        assertTrue(first.depth() > 0);
+        assertFalse(first.cached());
+        assertEquals(first.move(), first.principalVariation().get(0));
+        assertTrue(Fen.parse(KIWIPETE).legalMoves(ChessGame.TeamColor.WHITE).contains(first.move()));
+
+        AnalysisService.AnalysisResult second = analysisService.analyze(request);
+        assertTrue(second.cached());
+        assertEquals(first.move(), second.move());
+        assertEquals(first.score(), second.score());
+    }
+
+    @Test
+    void searchesAgainWhenGivenMoreTime() throws DataAccessException {
+        AnalysisService.AnalysisResult quick = analysisService.analyze(
+                new AnalysisService.AnalysisRequest(authToken, KIWIPETE, 0, 50));
+        assertFalse(quick.cached());
+        AnalysisService.AnalysisResult longer = analysisService.analyze(
+                new AnalysisService.AnalysisRequest(authToken, KIWIPETE, 0, 300));
+        assertFalse(longer.cached());
+        assertTrue(longer.depth() >= quick.depth());
+        AnalysisService.AnalysisResult again = analysisService.analyze(
+                new AnalysisService.AnalysisRequest(authToken, KIWIPETE, 0, 200));
+        assertTrue(again.cached());
+        assertEquals(longer.depth(), again.depth());
+    }
+
+    @Test
+    void returnsNoMoveWhenGameIsOver() throws DataAccessException {
+        AnalysisService.AnalysisResult result = analysisService.analyze(new AnalysisService.AnalysisRequest(
+                authToken, "R5k1/5ppp/8/8/8/8/8/6K1 b - - 0 1", 0, 200));
+        assertNull(result.move());
+        assertTrue(result.principalVariation().isEmpty());
+    }
+
+    @Test
+    void rejectsInvalidRequests() {
+        assertError("Unauthorized", new AnalysisService.AnalysisRequest("nope", KIWIPETE, 0, 100));
+        assertError("Bad Request", new AnalysisService.AnalysisRequest(authToken, null, 0, 100));
+        assertError("Bad Request", new AnalysisService.AnalysisRequest(authToken, "not a position", 0, 100));
+        assertError("Bad Request", new AnalysisService.AnalysisRequest(authToken, KIWIPETE, 0, -1));
+        assertError("Game not found", new AnalysisService.AnalysisRequest(authToken, null, 42, 100));
+    }
+
+    @Test
+    void rejectsPositionsThatCannotBePlayed() {
+        for (String fen : new String[]{"8/8/8/8/8/8/8/RR6 w - - 0 1", "4k3/8/8/8/8/8/8/K3K3 w - - 0 1",
+                "4k3/8/8/8/8/8/8/4RK2 w - - 0 1", "P3k3/8/8/8/8/8/8/4K3 w - - 0 1",
+                "4k3/8/8/8/8/8/8/p3K3 b - - 0 1"}) {
+            assertError("Bad Request", new AnalysisService.AnalysisRequest(authToken, fen, 0, 100));
+        }
+    }
+
+    @Test
+    void turnsAwayRequestsPastTheLimits() throws Exception {
+        String otherToken = register("otherUser");
+        try (AnalysisService unqueued = new AnalysisService(dataInMemory, 1, 0, 1, 8)) {
+            CountDownLatch started = new CountDownLatch(1);
+            CountDownLatch released = new CountDownLatch(1);
+            unqueued.beforeEverySearch(() -> holdUntil(started, released));
+            CompletableFuture<AnalysisService.AnalysisResult> busy = analyzeLater(unqueued, authToken, KIWIPETE, 1_500);
+            assertTrue(started.await(5, TimeUnit.SECONDS));
+
+            assertError(unqueued, "Too many requests",
+                    new AnalysisService.AnalysisRequest(authToken, Fen.STARTING_POSITION, 0, 100));
+            assertError(unqueued, "Too many requests",
+                    new AnalysisService.AnalysisRequest(otherToken, Fen.STARTING_POSITION, 0, 100));
+            released.countDown();
+            assertNotNull(busy.get().move());
+            assertEquals(0, unqueued.usersInFlight());
+        }
+    }
+
+    @Test
+    void timesOutWhileWaitingInTheQueue() throws Exception {
+        String otherToken = register("otherUser");
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch released = new CountDownLatch(1);
+        analysisService.beforeEverySearch(() -> holdUntil(started, released));
+        CompletableFuture<AnalysisService.AnalysisResult> busy = analyzeLater(analysisService, authToken, KIWIPETE, 1_500);
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+
+        assertError("Timed out", new AnalysisService.AnalysisRequest(otherToken, Fen.STARTING_POSITION, 0, 100));
+        released.countDown();
+        assertNotNull(busy.get().move());
+        analysisService.beforeEverySearch(() -> { });
+        assertNotNull(analysisService.analyze(
+                new AnalysisService.AnalysisRequest(otherToken, Fen.STARTING_POSITION, 0, 100)).move());
+        assertEquals(0, analysisService.usersInFlight());
+    }
+
+    private static void holdUntil(CountDownLatch started, CountDownLatch released) {
+        started.countDown();
+        try {
+            released.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static CompletableFuture<AnalysisService.AnalysisResult> analyzeLater(AnalysisService service, String token,
+                                                                                 String fen, long timeMillis) {
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                return service.analyze(new AnalysisService.AnalysisRequest(token, fen, 0, timeMillis));
+            } catch (DataAccessException e) {
+                throw new IllegalStateException(e);
+            }
+        });
+    }
+
+    private String register(String username) throws DataAccessException {
+        return userService.register(new UserService.RegisterRequest(username, "approved", username + "@example.com"))
+                .authToken();
+    }
+
+    private void assertError(String message, AnalysisService.AnalysisRequest request) {
+        assertError(analysisService, message, request);
+    }
+
+    private static void assertError(AnalysisService service, String message, AnalysisService.AnalysisRequest request) {
+        DataAccessException e = assertThrows(DataAccessException.class, () -> service.analyze(request));
+        assertEquals(message, e.getMessage());
+    }
+}
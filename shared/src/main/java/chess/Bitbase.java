@@ -0,0 +1,410 @@
+package chess;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Whether an ending of king and one piece against a lone king is won, for every placement of the
+ * three pieces and either team to move. The tables are worked out by retrograde analysis: mates
+ * and positions where the lone king takes the piece or is stalemated are known at once, then a
+ * position with the stronger team to move is won if one of its moves reaches a won position, and
+ * one with the lone king to move is won if all of its moves do, repeated until nothing changes.
+ * Whatever is still undecided then is a draw.
+ * <p>
+ * Each table holds one bit per position, 64KB for all of them, so a probe is a few shifts. The
+ * shared tables are worked out by load, which takes about a second and is meant to run once at
+ * startup, or can be written to and read back from files. Probes never wait for them: until they
+ * are loaded, positions they would cover are reported as not covered.
+ */
+public final class Bitbase {
+    /**
+     * An ending covered by a table, named by the pieces of the stronger team
+     */
+    public enum Ending {
+        KPK(ChessPiece.PieceType.PAWN),
+        KRK(ChessPiece.PieceType.ROOK),
+        KQK(ChessPiece.PieceType.QUEEN);
+
+        private final ChessPiece.PieceType piece;
+
+        Ending(ChessPiece.PieceType piece) {
+            this.piece = piece;
+        }
+
+        /**
+         * @return the piece the stronger team has besides its king
+         */
+        public ChessPiece.PieceType piece() {
+            return piece;
+        }
+    }
+
+    /**
+     * The result of a position with best play, for the team to move
+     */
+    public enum Outcome {
+        WIN,
+        DRAW,
+        LOSS
+    }
+
+    /**
+     * Positions per table: the stronger team to move or not, its king, the lone king and the piece
+     */
+    private static final int POSITIONS = 2 * 64 * 64 * 64;
+
+    private static final byte UNKNOWN = 0;
+    private static final byte WIN = 1;
+    private static final byte DRAW = 2;
+    private static final byte INVALID = 3;
+
+    private static final AtomicReferenceArray<Bitbase> SHARED = new AtomicReferenceArray<>(Ending.values().length);
+
+    private final Ending ending;
+    private final long[] wins;
+
+    private Bitbase(Ending ending, long[] wins) {
+        this.ending = ending;
+        this.wins = wins;
+    }
+
+    /**
+     * @return the ending this table covers
+     */
+    public Ending ending() {
+        return ending;
+    }
+
+    /**
+     * Squares are given as if the stronger team were white, a pawn moving towards row 8
+     *
+     * @param strongToMove true if the stronger team moves next
+     * @param strongKing square of the stronger team's king (0 is a1, 63 is h8)
+     * @param weakKing square of the lone king
+     * @param piece square of the stronger team's other piece
+     * @return true if the stronger team wins, false if it is a draw or the placement is impossible
+     */
+    public boolean isWin(boolean strongToMove, int strongKing, int weakKing, int piece) {
+        int index = index(strongToMove, strongKing, weakKing, piece);
+        return (wins[index >>> 6] & (1L << index)) != 0;
+    }
+
+    /**
+     * Works a table out
+     *
+     * @param ending the ending to work out, KPK uses the shared KQK and KRK tables for promotions
+     * @return the table
+     */
+    public static Bitbase generate(Ending ending) {
+        Generator generator = new Generator(ending);
+        generator.run();
+        long[] wins = new long[POSITIONS / 64];
+        for (int index = 0; index < POSITIONS; index++) {
+            if (generator.states[index] == WIN) {
+                wins[index >>> 6] |= 1L << index;
+            }
+        }
+        return new Bitbase(ending, wins);
+    }
+
+    /**
+     * Works out every shared table that was not installed. It takes about a second, so it is meant
+     * to run once at startup rather than inside a search, and does nothing once the tables are ready.
+     */
+    public static synchronized void load() {
+        for (Ending ending : new Ending[] {Ending.KRK, Ending.KQK, Ending.KPK}) {
+            if (SHARED.get(ending.ordinal()) == null) {
+                SHARED.set(ending.ordinal(), generate(ending));
+            }
+        }
+    }
+
+    /**
+     * @return the table shared by every probe, the tables are loaded first if they are not ready
+     */
+    public static Bitbase of(Ending ending) {
+        Bitbase table = SHARED.get(ending.ordinal());
+        if (table == null) {
+            load();
+            table = SHARED.get(ending.ordinal());
+        }
+        return table;
+    }
+
+    /**
+     * Makes a table, usually one read from a file, the one shared by every probe
+     */
+    public static void install(Bitbase table) {
+        SHARED.set(table.ending.ordinal(), table);
+    }
+
+    /**
+     * Writes the table to a file that read can load instead of working it out again
+     *
+     * @throws IOException if the file cannot be written
+     */
+    public void write(Path file) throws IOException {
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file)))) {
+            for (long word : wins) {
+                out.writeLong(word);
+            }
+        }
+    }
+
+    /**
+     * @param file a file written by write
+     * @param ending the ending the file holds
+     * @return the table
+     * @throws IOException if the file cannot be read
+     * @throws IllegalArgumentException if the file is not the size of a table
+     */
+    public static Bitbase read(Path file, Ending ending) throws IOException {
+        if (Files.size(file) != POSITIONS / 8) {
+            throw new IllegalArgumentException("Not a bitbase: " + file);
+        }
+        long[] wins = new long[POSITIONS / 64];
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            for (int i = 0; i < wins.length; i++) {
+                wins[i] = in.readLong();
+            }
+        }
+        return new Bitbase(ending, wins);
+    }
+
+    /**
+     * Looks a position up in the shared tables. Bare kings and a king and one minor piece against
+     * a king cannot be won and are reported as draws without a table.
+     *
+     * @param game the position
+     * @return the result for the team to move, or null if the position is not one the tables cover,
+     * each team does not have exactly one king, or the table it needs is not loaded yet
+     */
+    public static Outcome probe(ChessGame game) {
+        ChessBoard board = game.getBoard();
+        if (Long.bitCount(board.getPieces(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.KING)) != 1
+                || Long.bitCount(board.getPieces(ChessGame.TeamColor.BLACK, ChessPiece.PieceType.KING)) != 1) {
+            return null;
+        }
+        long occupied = board.getOccupancy();
+        int count = Long.bitCount(occupied);
+        if (count == 2) {
+            return Outcome.DRAW;
+        }
+        if (count != 3) {
+            return null;
+        }
+        ChessGame.TeamColor strong = ChessGame.TeamColor.WHITE;
+        if (Long.bitCount(board.getPieces(strong)) != 2) {
+            strong = ChessGame.TeamColor.BLACK;
+        }
+        long others = board.getPieces(strong) & ~board.getPieces(strong, ChessPiece.PieceType.KING);
+        ChessPiece.PieceType type = board.getPiece(Long.numberOfTrailingZeros(others)).getPieceType();
+        Ending ending = switch (type) {
+            case PAWN -> Ending.KPK;
+            case ROOK -> Ending.KRK;
+            case QUEEN -> Ending.KQK;
+            default -> null;
+        };
+        if (ending == null) {
+            return Outcome.DRAW;
+        }
+        ChessGame.TeamColor weak = strong == ChessGame.TeamColor.WHITE ? ChessGame.TeamColor.BLACK
+                : ChessGame.TeamColor.WHITE;
+        int flip = strong == ChessGame.TeamColor.WHITE ? 0 : 56;
+        Bitbase table = SHARED.get(ending.ordinal());
+        if (table == null) {
+            return null;
+        }
+        boolean strongToMove = game.getTeamTurn() == strong;
+        boolean win = table.isWin(strongToMove,
+                Long.numberOfTrailingZeros(board.getPieces(strong, ChessPiece.PieceType.KING)) ^ flip,
+                Long.numberOfTrailingZeros(board.getPieces(weak, ChessPiece.PieceType.KING)) ^ flip,
+                Long.numberOfTrailingZeros(others) ^ flip);
+        if (!win) {
+            return Outcome.DRAW;
+        }
+        return strongToMove ? Outcome.WIN : Outcome.LOSS;
+    }
+
+    /**
+     * Writes every table into a directory, each file named by fileName.
+     * Usage: Bitbase &lt;directory&gt;
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length < 1) {
+            System.out.println("Usage: Bitbase <directory>");
+            return;
+        }
+        Path directory = Files.createDirectories(Path.of(args[0]));
+        long start = System.nanoTime();
+        load();
+        System.out.println("Worked out in " + (System.nanoTime() - start) / 1_000_000 + " ms");
+        for (Ending ending : Ending.values()) {
+            of(ending).write(directory.resolve(fileName(ending)));
+        }
+    }
+
+    /**
+     * @return the file name main writes the ending's table to, such as "kpk.bin"
+     */
+    public static String fileName(Ending ending) {
+        return ending.name().toLowerCase() + ".bin";
+    }
+
+    private static int index(boolean strongToMove, int strongKing, int weakKing, int piece) {
+        return (strongToMove ? 1 << 18 : 0) | strongKing << 12 | weakKing << 6 | piece;
+    }
+
+    /**
+     * The state of every position while a table is worked out
+     */
+    private static final class Generator {
+        private final Ending ending;
+        private final byte[] states = new byte[POSITIONS];
+        private Bitbase queens;
+        private Bitbase rooks;
+
+        Generator(Ending ending) {
+            this.ending = ending;
+        }
+
+        void run() {
+            if (ending == Ending.KPK) {
+                queens = of(Ending.KQK);
+                rooks = of(Ending.KRK);
+            }
+            for (int index = 0; index < POSITIONS; index++) {
+                states[index] = initial(index);
+            }
+            boolean changed = true;
+            while (changed) {
+                changed = false;
+                for (int index = 0; index < POSITIONS; index++) {
+                    if (states[index] == UNKNOWN) {
+                        byte state = (index >>> 18) != 0 ? strongMoves(index) : weakMoves(index);
+                        if (state != UNKNOWN) {
+                            states[index] = state;
+                            changed = true;
+                        }
+                    }
+                }
+            }
+        }
+
+        /**
+         * Finds the impossible placements and the positions decided without looking ahead: mate,
+         * stalemate and the lone king taking the piece
+         */
+        private byte initial(int index) {
+            int strongKing = (index >>> 12) & 63;
+            int weakKing = (index >>> 6) & 63;
+            int piece = index & 63;
+            if (strongKing == weakKing || strongKing == piece || weakKing == piece
+                    || (Bitboards.kingAttacks(strongKing) & Bitboards.bit(weakKing)) != 0) {
+                return INVALID;
+            }
+            if (ending == Ending.KPK && (piece < 8 || piece >= 56)) {
+                return INVALID;
+            }
+            boolean inCheck = (attacks(piece, Bitboards.bit(strongKing) | Bitboards.bit(weakKing))
+                    & Bitboards.bit(weakKing)) != 0;
+            if ((index >>> 18) != 0) {
+                return inCheck ? INVALID : UNKNOWN;
+            }
+            if ((Bitboards.kingAttacks(weakKing) & ~Bitboards.kingAttacks(strongKing) & Bitboards.bit(piece)) != 0) {
+                return DRAW;
+            }
+            if (escapes(strongKing, weakKing, piece) == 0) {
+                return inCheck ? WIN : DRAW;
+            }
+            return UNKNOWN;
+        }
+
+        /**
+         * The lone king to move wins nothing, it holds the draw if any move reaches a draw
+         */
+        private byte weakMoves(int index) {
+            int strongKing = (index >>> 12) & 63;
+            int piece = index & 63;
+            boolean allWon = true;
+            for (long targets = escapes(strongKing, (index >>> 6) & 63, piece); targets != 0; targets &= targets - 1) {
+                byte state = states[index(true, strongKing, Long.numberOfTrailingZeros(targets), piece)];
+                if (state == DRAW) {
+                    return DRAW;
+                }
+                allWon &= state == WIN;
+            }
+            return allWon ? WIN : UNKNOWN;
+        }
+
+        /**
+         * The stronger team to move wins if any move reaches a win
+         */
+        private byte strongMoves(int index) {
+            int strongKing = (index >>> 12) & 63;
+            int weakKing = (index >>> 6) & 63;
+            int piece = index & 63;
+            boolean allDrawn = true;
+            long kingTargets = Bitboards.kingAttacks(strongKing) & ~Bitboards.kingAttacks(weakKing)
+                    & ~Bitboards.bit(piece);
+            for (; kingTargets != 0; kingTargets &= kingTargets - 1) {
+                byte state = states[index(false, Long.numberOfTrailingZeros(kingTargets), weakKing, piece)];
+                if (state == WIN) {
+                    return WIN;
+                }
+                allDrawn &= state == DRAW;
+            }
+            long occupied = Bitboards.bit(strongKing) | Bitboards.bit(weakKing);
+            long pieceTargets = ending == Ending.KPK ? pawnPushes(piece, occupied)
+                    : attacks(piece, occupied) & ~occupied;
+            for (; pieceTargets != 0; pieceTargets &= pieceTargets - 1) {
+                int target = Long.numberOfTrailingZeros(pieceTargets);
+                byte state;
+                if (ending == Ending.KPK && target >= 56) {
+                    state = queens.isWin(false, strongKing, weakKing, target)
+                            || rooks.isWin(false, strongKing, weakKing, target) ? WIN : DRAW;
+                } else {
+                    state = states[index(false, strongKing, weakKing, target)];
+                }
+                if (state == WIN) {
+                    return WIN;
+                }
+                allDrawn &= state == DRAW;
+            }
+            return allDrawn ? DRAW : UNKNOWN;
+        }
+
+        /**
+         * @return the squares the lone king can step to without taking the piece
+         */
+        private long escapes(int strongKing, int weakKing, int piece) {
+            return Bitboards.kingAttacks(weakKing) & ~Bitboards.kingAttacks(strongKing) & ~Bitboards.bit(piece)
+                    & ~attacks(piece, Bitboards.bit(strongKing));
+        }
+
+        /**
+         * @param occupied the squares of the kings the piece's lines may be blocked by
+         */
+        private long attacks(int piece, long occupied) {
+            return switch (ending) {
+                case KPK -> Bitboards.pawnAttacks(ChessGame.TeamColor.WHITE, piece);
+                case KRK -> Bitboards.rookAttacks(piece, occupied);
+                case KQK -> Bitboards.queenAttacks(piece, occupied);
+            };
+        }
+
+        private static long pawnPushes(int pawn, long occupied) {
+            long single = Bitboards.bit(pawn + 8) & ~occupied;
+            if (single != 0 && pawn < 16) {
+                return single | (Bitboards.bit(pawn + 16) & ~occupied);
+            }
+            return single;
+        }
+    }
+}
@@ -0,0 +1,127 @@
+package chess;
+
+import java.util.Collection;
+
+/**
+ * Generates the same pseudo-legal moves as ChessPiece.pieceMoves, but from the board's bitboards
+ * and the precomputed tables in Bitboards instead of walking each direction square by square.
+ * Like pieceMoves it does not check whether a move leaves the king in danger.
+ * <p>
+ * Moves are written as packed ints (see PackedMove) into a MoveList the caller reuses, the
+ * Collection methods decode them into ChessMove objects for callers that want those.
+ */
+public final class BitboardMoveGenerator {
+    private static final ChessPiece.PieceType[] PROMOTIONS = {
+            ChessPiece.PieceType.QUEEN,
+            ChessPiece.PieceType.BISHOP,
+            ChessPiece.PieceType.ROOK,
+            ChessPiece.PieceType.KNIGHT
+    };
+
+    private BitboardMoveGenerator() {
+    }
+
+    /**
+     * Calculates all the positions the piece at the given position can move to
+     *
+     * @param board the board to generate moves on
+     * @param position where the piece stands
+     * @return Collection of moves, empty if there is no piece at the position
+     */
+    public static Collection<ChessMove> pieceMoves(ChessBoard board, ChessPosition position) {
+        MoveList moves = new MoveList(32);
+        pieceMoves(board, ChessBoard.squareIndex(position.getRow(), position.getColumn()), moves);
+        return moves.toChessMoves();
+    }
+
+    /**
+     * Calculates the moves of every piece of one team
+     *
+     * @param board the board to generate moves on
+     * @param color the team to move
+     * @return Collection of moves for that team
+     */
+    public static Collection<ChessMove> teamMoves(ChessBoard board, ChessGame.TeamColor color) {
+        MoveList moves = new MoveList();
+        teamMoves(board, color, moves);
+        return moves.toChessMoves();
+    }
+
+    /**
+     * Adds the packed moves of the piece on a square to the list, nothing is added for an empty square
+     */
+    public static void pieceMoves(ChessBoard board, int square, MoveList moves) {
+        ChessPiece piece = board.getPiece(square);
+        if (piece != null) {
+            addMoves(board, piece, square, pseudoTargets(board, piece, square), moves);
+        }
+    }
+
+    /**
+     * Adds the packed moves of every piece of one team to the list
+     */
+    public static void teamMoves(ChessBoard board, ChessGame.TeamColor color, MoveList moves) {
+        long pieces = board.getPieces(color);
+        while (pieces != 0) {
+            pieceMoves(board, Long.numberOfTrailingZeros(pieces), moves);
+            pieces &= pieces - 1;
+        }
+    }
+
+    /**
+     * @return every square the piece could move to, ignoring whether its own king is left in check
+     */
+    static long pseudoTargets(ChessBoard board, ChessPiece piece, int square) {
+        ChessGame.TeamColor color = piece.getTeamColor();
+        long own = board.getPieces(color);
+        long occupied = board.getOccupancy();
+        long targets = switch (piece.getPieceType()) {
+            case KING -> Bitboards.kingAttacks(square);
+            case QUEEN -> Bitboards.queenAttacks(square, occupied);
+            case ROOK -> Bitboards.rookAttacks(square, occupied);
+            case BISHOP -> Bitboards.bishopAttacks(square, occupied);
+            case KNIGHT -> Bitboards.knightAttacks(square);
+            case PAWN -> pawnTargets(color, square, occupied, occupied & ~own);
+        };
+        return targets & ~own;
+    }
+
+    /**
+     * Turns target squares into packed moves, a pawn reaching the last row gets one move per
+     * promotion piece
+     */
+    static void addMoves(ChessBoard board, ChessPiece piece, int square, long targets, MoveList moves) {
+        long occupied = board.getOccupancy();
+        boolean pawn = piece.getPieceType() == ChessPiece.PieceType.PAWN;
+        long promotionRank = piece.getTeamColor() == ChessGame.TeamColor.WHITE ? Bitboards.RANK_8 : Bitboards.RANK_1;
+        while (targets != 0) {
+            int to = Long.numberOfTrailingZeros(targets);
+            targets &= targets - 1;
+            long target = Bitboards.bit(to);
+            int flags = (occupied & target) != 0 ? PackedMove.CAPTURE : 0;
+            if (pawn && (promotionRank & target) != 0) {
+                for (ChessPiece.PieceType promotion : PROMOTIONS) {
+                    moves.add(PackedMove.encode(square, to, promotion, flags));
+                }
+            } else {
+                if (pawn && Math.abs(to - square) == 16) {
+                    flags |= PackedMove.DOUBLE_PUSH;
+                }
+                moves.add(PackedMove.encode(square, to, null, flags));
+            }
+        }
+    }
+
+    private static long pawnTargets(ChessGame.TeamColor color, int square, long occupied, long enemies) {
+        long from = Bitboards.bit(square);
+        long targets;
+        if (color == ChessGame.TeamColor.WHITE) {
+            long single = (from << 8) & ~occupied;
+            targets = single | ((single & (Bitboards.RANK_1 << 16)) << 8 & ~occupied);
+        } else {
+            long single = (from >>> 8) & ~occupied;
+            targets = single | ((single & (Bitboards.RANK_8 >>> 16)) >>> 8 & ~occupied);
+        }
+        return targets | (Bitboards.pawnAttacks(color, square) & enemies);
+    }
+}
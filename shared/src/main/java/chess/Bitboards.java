@@ -0,0 +1,274 @@
+package chess;
+
+/**
+ * Precomputed attack tables for bitboard move generation.
+ * <p>
+ * A bitboard is a long where bit n is set when square n is part of the set, squares use the same
+ * numbering as ChessBoard (a1 is 0, h1 is 7, h8 is 63). Knight, king and pawn attacks are plain
+ * lookups, rook and bishop attacks use magic multiplication to index a table of every blocker
+ * arrangement on the piece's rays.
+ */
+public final class Bitboards {
+    public static final long FILE_A = 0x0101010101010101L;
+    public static final long FILE_H = FILE_A << 7;
+    public static final long RANK_1 = 0xFFL;
+    public static final long RANK_8 = RANK_1 << 56;
+
+    private static final long[] KNIGHT_ATTACKS = new long[64];
+    private static final long[] KING_ATTACKS = new long[64];
+    private static final long[][] PAWN_ATTACKS = new long[2][64];
+
+    private static final long[] ROOK_MASKS = new long[64];
+    private static final long[] ROOK_MAGICS = new long[64];
+    private static final int[] ROOK_SHIFTS = new int[64];
+    private static final int[] ROOK_OFFSETS = new int[64];
+    private static final long[] BISHOP_MASKS = new long[64];
+    private static final long[] BISHOP_MAGICS = new long[64];
+    private static final int[] BISHOP_SHIFTS = new int[64];
+    private static final int[] BISHOP_OFFSETS = new int[64];
+    private static final long[] SLIDER_ATTACKS;
+    private static final long[][] BETWEEN = new long[64][64];
+    private static final long[][] LINE = new long[64][64];
+
+    private static final int[][] ROOK_DIRECTIONS = {{1, 0}, {-1, 0}, {0, 1}, {0, -1}};
+    private static final int[][] BISHOP_DIRECTIONS = {{1, 1}, {1, -1}, {-1, 1}, {-1, -1}};
+
+    static {
+        int[][] knightDeltas = {{2, 1}, {2, -1}, {-2, 1}, {-2, -1}, {1, 2}, {1, -2}, {-1, 2}, {-1, -2}};
+        int[][] kingDeltas = {{1, -1}, {1, 0}, {1, 1}, {0, -1}, {0, 1}, {-1, -1}, {-1, 0}, {-1, 1}};
+        for (int square = 0; square < 64; square++) {
+            KNIGHT_ATTACKS[square] = jumps(square, knightDeltas);
+            KING_ATTACKS[square] = jumps(square, kingDeltas);
+            PAWN_ATTACKS[ChessGame.TeamColor.WHITE.ordinal()][square] = jumps(square, new int[][]{{1, -1}, {1, 1}});
+            PAWN_ATTACKS[ChessGame.TeamColor.BLACK.ordinal()][square] = jumps(square, new int[][]{{-1, -1}, {-1, 1}});
+        }
+
+        int size = 0;
+        for (int square = 0; square < 64; square++) {
+            ROOK_MASKS[square] = relevantMask(square, ROOK_DIRECTIONS);
+            ROOK_SHIFTS[square] = 64 - Long.bitCount(ROOK_MASKS[square]);
+            ROOK_OFFSETS[square] = size;
+            size += 1 << Long.bitCount(ROOK_MASKS[square]);
+        }
+        for (int square = 0; square < 64; square++) {
+            BISHOP_MASKS[square] = relevantMask(square, BISHOP_DIRECTIONS);
+            BISHOP_SHIFTS[square] = 64 - Long.bitCount(BISHOP_MASKS[square]);
+            BISHOP_OFFSETS[square] = size;
+            size += 1 << Long.bitCount(BISHOP_MASKS[square]);
+        }
+        SLIDER_ATTACKS = new long[size];
+
+        int[][] allDirections = {{1, 0}, {-1, 0}, {0, 1}, {0, -1}, {1, 1}, {1, -1}, {-1, 1}, {-1, -1}};
+        for (int square = 0; square < 64; square++) {
+            for (int[] direction : allDirections) {
+                long full = ray(square, direction[0], direction[1]) | ray(square, -direction[0], -direction[1])
+                        | bit(square);
+                long between = 0L;
+                int row = square / 8 + 1 + direction[0];
+                int col = square % 8 + 1 + direction[1];
+                while (ChessBoard.isOnBoard(row, col)) {
+                    int target = ChessBoard.squareIndex(row, col);
+                    BETWEEN[square][target] = between;
+                    LINE[square][target] = full;
+                    between |= bit(target);
+                    row += direction[0];
+                    col += direction[1];
+                }
+            }
+        }
+
+        long[] seed = {0x9E3779B97F4A7C15L};
+        for (int square = 0; square < 64; square++) {
+            ROOK_MAGICS[square] = findMagic(square, ROOK_MASKS[square], ROOK_SHIFTS[square],
+                    ROOK_OFFSETS[square], ROOK_DIRECTIONS, seed);
+            BISHOP_MAGICS[square] = findMagic(square, BISHOP_MASKS[square], BISHOP_SHIFTS[square],
+                    BISHOP_OFFSETS[square], BISHOP_DIRECTIONS, seed);
+        }
+    }
+
+    private Bitboards() {
+    }
+
+    /**
+     * @return bitboard with only the given square set
+     */
+    public static long bit(int square) {
+        return 1L << square;
+    }
+
+    public static long knightAttacks(int square) {
+        return KNIGHT_ATTACKS[square];
+    }
+
+    public static long kingAttacks(int square) {
+        return KING_ATTACKS[square];
+    }
+
+    /**
+     * @param color color of the pawn
+     * @param square square the pawn stands on
+     * @return the squares that pawn captures on
+     */
+    public static long pawnAttacks(ChessGame.TeamColor color, int square) {
+        return PAWN_ATTACKS[color.ordinal()][square];
+    }
+
+    /**
+     * @param square square of the rook
+     * @param occupied every occupied square on the board
+     * @return squares reached along ranks and files, including the first blocker of each ray
+     */
+    public static long rookAttacks(int square, long occupied) {
+        int index = (int) (((occupied & ROOK_MASKS[square]) * ROOK_MAGICS[square]) >>> ROOK_SHIFTS[square]);
+        return SLIDER_ATTACKS[ROOK_OFFSETS[square] + index];
+    }
+
+    /**
+     * @param square square of the bishop
+     * @param occupied every occupied square on the board
+     * @return squares reached along diagonals, including the first blocker of each ray
+     */
+    public static long bishopAttacks(int square, long occupied) {
+        int index = (int) (((occupied & BISHOP_MASKS[square]) * BISHOP_MAGICS[square]) >>> BISHOP_SHIFTS[square]);
+        return SLIDER_ATTACKS[BISHOP_OFFSETS[square] + index];
+    }
+
+    public static long queenAttacks(int square, long occupied) {
+        return rookAttacks(square, occupied) | bishopAttacks(square, occupied);
+    }
+
+    /**
+     * @return the squares strictly between two squares on the same rank, file or diagonal,
+     * or an empty bitboard if they are not aligned
+     */
+    public static long between(int from, int to) {
+        return BETWEEN[from][to];
+    }
+
+    /**
+     * @return the whole rank, file or diagonal running through both squares (edge to edge),
+     * or an empty bitboard if they are not aligned
+     */
+    public static long line(int a, int b) {
+        return LINE[a][b];
+    }
+
+    private static long ray(int square, int rowDelta, int colDelta) {
+        long ray = 0L;
+        int row = square / 8 + 1 + rowDelta;
+        int col = square % 8 + 1 + colDelta;
+        while (ChessBoard.isOnBoard(row, col)) {
+            ray |= bit(ChessBoard.squareIndex(row, col));
+            row += rowDelta;
+            col += colDelta;
+        }
+        return ray;
+    }
+
+    private static long jumps(int square, int[][] deltas) {
+        int row = square / 8 + 1;
+        int col = square % 8 + 1;
+        long attacks = 0L;
+        for (int[] delta : deltas) {
+            if (ChessBoard.isOnBoard(row + delta[0], col + delta[1])) {
+                attacks |= bit(ChessBoard.squareIndex(row + delta[0], col + delta[1]));
+            }
+        }
+        return attacks;
+    }
+
+    /**
+     * Squares whose occupancy can change a slider's attacks, the last square of each ray never
+     * matters since it is attacked whether or not something stands on it.
+     */
+    private static long relevantMask(int square, int[][] directions) {
+        int row = square / 8 + 1;
+        int col = square % 8 + 1;
+        long mask = 0L;
+        for (int[] direction : directions) {
+            int r = row + direction[0];
+            int c = col + direction[1];
+            while (ChessBoard.isOnBoard(r + direction[0], c + direction[1])) {
+                mask |= bit(ChessBoard.squareIndex(r, c));
+                r += direction[0];
+                c += direction[1];
+            }
+        }
+        return mask;
+    }
+
+    private static long slowAttacks(int square, long occupied, int[][] directions) {
+        int row = square / 8 + 1;
+        int col = square % 8 + 1;
+        long attacks = 0L;
+        for (int[] direction : directions) {
+            int r = row + direction[0];
+            int c = col + direction[1];
+            while (ChessBoard.isOnBoard(r, c)) {
+                long target = bit(ChessBoard.squareIndex(r, c));
+                attacks |= target;
+                if ((occupied & target) != 0) {
+                    break;
+                }
+                r += direction[0];
+                c += direction[1];
+            }
+        }
+        return attacks;
+    }
+
+    /**
+     * Searches for a multiplier that maps every blocker subset of the mask to its own slot (or to a
+     * slot with identical attacks) and fills that square's part of the attack table with it.
+     */
+    private static long findMagic(int square, long mask, int shift, int offset, int[][] directions, long[] seed) {
+        int subsets = 1 << Long.bitCount(mask);
+        long[] occupancies = new long[subsets];
+        long[] attacks = new long[subsets];
+        long subset = 0L;
+        for (int i = 0; i < subsets; i++) {
+            occupancies[i] = subset;
+            attacks[i] = slowAttacks(square, subset, directions);
+            subset = (subset - mask) & mask;
+        }
+
+        long[] used = new long[subsets];
+        int[] usedEpoch = new int[subsets];
+        for (int epoch = 1; ; epoch++) {
+            long magic = sparseRandom(seed);
+            if (Long.bitCount((mask * magic) & 0xFF00000000000000L) < 6) {
+                continue;
+            }
+            boolean works = true;
+            for (int i = 0; i < subsets && works; i++) {
+                int index = (int) ((occupancies[i] * magic) >>> shift);
+                if (usedEpoch[index] != epoch) {
+                    usedEpoch[index] = epoch;
+                    used[index] = attacks[i];
+                } else if (used[index] != attacks[i]) {
+                    works = false;
+                }
+            }
+            if (works) {
+                for (int i = 0; i < subsets; i++) {
+                    int index = (int) ((occupancies[i] * magic) >>> shift);
+                    SLIDER_ATTACKS[offset + index] = attacks[i];
+                }
+                return magic;
+            }
+        }
+    }
+
+    private static long sparseRandom(long[] seed) {
+        return nextRandom(seed) & nextRandom(seed) & nextRandom(seed);
+    }
+
+    private static long nextRandom(long[] seed) {
+        long x = seed[0];
+        x ^= x >>> 12;
+        x ^= x << 25;
+        x ^= x >>> 27;
+        seed[0] = x;
+        return x * 0x2545F4914F6CDD1DL;
+    }
+}
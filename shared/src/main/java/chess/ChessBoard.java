@@ -1,8 +1,12 @@
 package chess;
 
-import java.util.HashMap;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Iterator;
 import java.util.Map;
-import java.util.Objects;
+import java.util.NoSuchElementException;
+import java.util.Set;
 
 /**
  * A chessboard that can hold and rearrange chess pieces.
@@ -11,9 +15,35 @@ import java.util.Objects;
  * signature of the existing methods.
  */
 public class ChessBoard {
-    final private Map<ChessPosition, ChessPiece> board;
+    /**
+     * Squares are stored row by row starting at the bottom left corner, so a1 is index 0,
+     * h1 is index 7 and h8 is index 63. An empty square holds null.
+     */
+    final private ChessPiece[] squares;
+    private transient Map<ChessPosition, ChessPiece> boardView;
+    /**
+     * Bitboards derived from the squares: one per color and piece type, indexed by pieceIndex,
+     * plus one per color, and the Zobrist keys of all pieces and of the pawns alone. They are
+     * rebuilt on first use since Gson fills in the squares directly.
+     */
+    private final transient long[] pieceBoards = new long[12];
+    private final transient long[] colorBoards = new long[2];
+    private transient long zobristKey;
+    private transient long pawnKey;
+    private transient boolean indexed;
+    private transient int version;
+
     public ChessBoard() {
-        board = new HashMap<>();
+        squares = new ChessPiece[64];
+    }
+
+    /**
+     * Creates a board holding the same pieces on the same squares as another board
+     *
+     * @param other the board to copy
+     */
+    public ChessBoard(ChessBoard other) {
+        squares = other.squares.clone();
     }
 
     @Override
@@ -21,19 +51,23 @@ public class ChessBoard {
         if (o == null || getClass() != o.getClass()) {
             return false;
         }
+        if (this == o) {
+            return true;
+        }
         ChessBoard that = (ChessBoard) o;
-        return Objects.equals(board, that.board);
+        return getZobristKey() == that.getZobristKey() && Arrays.equals(squares, that.squares);
     }
 
     @Override
     public int hashCode() {
-        return Objects.hashCode(board);
+        long key = getZobristKey();
+        return (int) (key ^ (key >>> 32));
     }
 
     @Override
     public String toString() {
         return "ChessBoard{" +
-                "board=" + board +
+                "board=" + getBoard() +
                 '}';
     }
 
@@ -44,7 +78,7 @@ public class ChessBoard {
      * @param piece    the piece to add
      */
     public void addPiece(ChessPosition position, ChessPiece piece) {
-        board.put(position, piece);
+        setSquare(squareIndex(position.getRow(), position.getColumn()), piece);
     }
 
     /**
@@ -55,7 +89,32 @@ public class ChessBoard {
      * position
      */
     public ChessPiece getPiece(ChessPosition position) {
-        return board.get(position);
+        return getPiece(position.getRow(), position.getColumn());
+    }
+
+    /**
+     * Gets a chess piece by row and column without needing a ChessPosition,
+     * positions outside the board are treated as empty squares
+     *
+     * @param row row of the square, 1 codes for the bottom row
+     * @param col column of the square, 1 codes for the left column
+     * @return the piece on that square or null if there is none
+     */
+    ChessPiece getPiece(int row, int col) {
+        if (!isOnBoard(row, col)) {
+            return null;
+        }
+        return squares[squareIndex(row, col)];
+    }
+
+    /**
+     * Gets a chess piece by its square index (0 is a1, 63 is h8)
+     *
+     * @param square index of the square
+     * @return the piece on that square or null if there is none
+     */
+    public ChessPiece getPiece(int square) {
+        return squares[square];
     }
 
     /**
@@ -64,16 +123,174 @@ public class ChessBoard {
      * @param position The position to remove piece from
      */
     public void removePiece(ChessPosition position) {
-        board.remove(position);
+        setSquare(squareIndex(position.getRow(), position.getColumn()), null);
     }
 
     /**
-     * Removes null values from the b
+     * Places a piece (or null to empty the square) and keeps the bitboards in sync
      *
+     * @param square index of the square
+     * @param piece the piece to place, or null
+     */
+    void setSquare(int square, ChessPiece piece) {
+        ChessPiece previous = squares[square];
+        squares[square] = piece;
+        version++;
+        if (!indexed) {
+            return;
+        }
+        long bit = Bitboards.bit(square);
+        if (previous != null) {
+            pieceBoards[pieceIndex(previous)] &= ~bit;
+            colorBoards[previous.getTeamColor().ordinal()] &= ~bit;
+            zobristKey ^= Zobrist.piece(previous, square);
+            if (previous.getPieceType() == ChessPiece.PieceType.PAWN) {
+                pawnKey ^= Zobrist.piece(previous, square);
+            }
+        }
+        if (piece != null) {
+            pieceBoards[pieceIndex(piece)] |= bit;
+            colorBoards[piece.getTeamColor().ordinal()] |= bit;
+            zobristKey ^= Zobrist.piece(piece, square);
+            if (piece.getPieceType() == ChessPiece.PieceType.PAWN) {
+                pawnKey ^= Zobrist.piece(piece, square);
+            }
+        }
+    }
+
+    /**
+     * @param color team of the pieces
+     * @param type kind of piece
+     * @return bitboard of every square holding that piece
+     */
+    public long getPieces(ChessGame.TeamColor color, ChessPiece.PieceType type) {
+        ensureIndexed();
+        return pieceBoards[color.ordinal() * 6 + type.ordinal()];
+    }
+
+    /**
+     * @param color team of the pieces
+     * @return bitboard of every square holding a piece of that team
+     */
+    public long getPieces(ChessGame.TeamColor color) {
+        ensureIndexed();
+        return colorBoards[color.ordinal()];
+    }
+
+    /**
+     * @return bitboard of every occupied square
+     */
+    public long getOccupancy() {
+        ensureIndexed();
+        return colorBoards[0] | colorBoards[1];
+    }
+
+    /**
+     * Finds a team's king through its bitboard, which is kept up to date on every change
+     *
+     * @param color team of the king
+     * @return square index of the king, or -1 if that team has no king on the board
+     */
+    public int getKingSquare(ChessGame.TeamColor color) {
+        long king = getPieces(color, ChessPiece.PieceType.KING);
+        return king == 0 ? -1 : Long.numberOfTrailingZeros(king);
+    }
+
+    /**
+     * Determines if any piece of a team attacks a square. Rather than generating that team's moves
+     * it looks outward from the square: knight jumps, pawn diagonals, king steps and sliding rays
+     * up to their first blocker, and checks whether a matching piece sits at the end.
      *
+     * @param square index of the square
+     * @param byColor team doing the attacking
+     * @return true if a piece of that team attacks the square
+     */
+    public boolean isSquareAttacked(int square, ChessGame.TeamColor byColor) {
+        return attackers(square, byColor, getOccupancy()) != 0;
+    }
+
+    /**
+     * @param square index of the square
+     * @param byColor team doing the attacking
+     * @param occupied occupancy to use for the sliding rays; pieces left out of it are still
+     * reported, so a caller replaying an exchange masks the result with it
+     * @return bitboard of that team's pieces attacking the square
+     */
+    public long attackers(int square, ChessGame.TeamColor byColor, long occupied) {
+        ChessGame.TeamColor target = byColor == ChessGame.TeamColor.WHITE
+                ? ChessGame.TeamColor.BLACK : ChessGame.TeamColor.WHITE;
+        long queens = getPieces(byColor, ChessPiece.PieceType.QUEEN);
+        return (Bitboards.knightAttacks(square) & getPieces(byColor, ChessPiece.PieceType.KNIGHT))
+                | (Bitboards.pawnAttacks(target, square) & getPieces(byColor, ChessPiece.PieceType.PAWN))
+                | (Bitboards.kingAttacks(square) & getPieces(byColor, ChessPiece.PieceType.KING))
+                | (Bitboards.bishopAttacks(square, occupied)
+                        & (getPieces(byColor, ChessPiece.PieceType.BISHOP) | queens))
+                | (Bitboards.rookAttacks(square, occupied)
+                        & (getPieces(byColor, ChessPiece.PieceType.ROOK) | queens));
+    }
+
+    /**
+     * Gets the Zobrist key of the pieces on the board, it is updated with a single XOR whenever a
+     * square changes. Boards with the same pieces on the same squares always have the same key.
+     *
+     * @return 64-bit key of the piece placement, the side to move is not part of it
+     */
+    public long getZobristKey() {
+        ensureIndexed();
+        return zobristKey;
+    }
+
+    /**
+     * Gets the Zobrist key of the pawns alone, made of the same numbers as the full key. It only
+     * changes when a pawn moves, is captured or promotes, so results that depend on the pawns
+     * alone can be cached under it.
+     *
+     * @return 64-bit key of the pawn placement
+     */
+    public long getPawnZobristKey() {
+        ensureIndexed();
+        return pawnKey;
+    }
+
+    /**
+     * @return a counter that changes every time a square changes, used to tell when cached results
+     * about this board are stale
+     */
+    int getVersion() {
+        return version;
+    }
+
+    private void ensureIndexed() {
+        if (indexed) {
+            return;
+        }
+        Arrays.fill(pieceBoards, 0L);
+        Arrays.fill(colorBoards, 0L);
+        zobristKey = 0L;
+        pawnKey = 0L;
+        for (int square = 0; square < 64; square++) {
+            ChessPiece piece = squares[square];
+            if (piece != null) {
+                pieceBoards[pieceIndex(piece)] |= Bitboards.bit(square);
+                colorBoards[piece.getTeamColor().ordinal()] |= Bitboards.bit(square);
+                zobristKey ^= Zobrist.piece(piece, square);
+                if (piece.getPieceType() == ChessPiece.PieceType.PAWN) {
+                    pawnKey ^= Zobrist.piece(piece, square);
+                }
+            }
+        }
+        indexed = true;
+    }
+
+    static int pieceIndex(ChessPiece piece) {
+        return piece.getTeamColor().ordinal() * 6 + piece.getPieceType().ordinal();
+    }
+
+    /**
+     * Removes null values from the board. Empty squares are stored as null slots of the array,
+     * so there is nothing left to clean up; kept so older callers still compile.
      */
     public void clearEmptySpace(){
-        board.entrySet().removeIf(entry ->entry.getValue() == null);
     }
     /**
      * Sets the board to the default starting board
@@ -81,6 +298,9 @@ public class ChessBoard {
      */
     public void resetBoard() {
         //Board should look like the start of a chess game, use addPiece()
+        Arrays.fill(squares, null);
+        indexed = false;
+        version++;
         startingPieces(ChessGame.TeamColor.WHITE, 1, 2);
         startingPieces(ChessGame.TeamColor.BLACK, 8, 7);
     }
@@ -89,9 +309,15 @@ public class ChessBoard {
      * of where the elements of the map are like knowing where the King is and the position of other pieces
      * to calculate Checkmate and the current state of the game.
      * (How the game of chess is in the current turn)
+     * <p>
+     * The map is a read-only view that is built on first use and always reflects the current squares,
+     * it only contains the occupied squares.
      */
     public Map<ChessPosition, ChessPiece> getBoard() {
-        return board;
+        if (boardView == null) {
+            boardView = new OccupiedSquares();
+        }
+        return boardView;
     }
     /**
      * Sets the starting pieces in the board game
@@ -100,16 +326,92 @@ public class ChessBoard {
      * @param pawns is the row where the pawns will go
      */
     public void startingPieces(ChessGame.TeamColor side, int  nonPawns, int pawns) {
-        addPiece(new ChessPosition(nonPawns, 1), new ChessPiece(side, ChessPiece.PieceType.ROOK));
-        addPiece(new ChessPosition(nonPawns, 2), new ChessPiece(side, ChessPiece.PieceType.KNIGHT));
-        addPiece(new ChessPosition(nonPawns, 3), new ChessPiece(side, ChessPiece.PieceType.BISHOP));
-        addPiece(new ChessPosition(nonPawns, 4), new ChessPiece(side, ChessPiece.PieceType.QUEEN));
-        addPiece(new ChessPosition(nonPawns, 5), new ChessPiece(side, ChessPiece.PieceType.KING));
-        addPiece(new ChessPosition(nonPawns, 6), new ChessPiece(side, ChessPiece.PieceType.BISHOP));
-        addPiece(new ChessPosition(nonPawns, 7), new ChessPiece(side, ChessPiece.PieceType.KNIGHT));
-        addPiece(new ChessPosition(nonPawns, 8), new ChessPiece(side, ChessPiece.PieceType.ROOK));
+        addPiece(ChessPosition.of(nonPawns, 1), ChessPiece.of(side, ChessPiece.PieceType.ROOK));
+        addPiece(ChessPosition.of(nonPawns, 2), ChessPiece.of(side, ChessPiece.PieceType.KNIGHT));
+        addPiece(ChessPosition.of(nonPawns, 3), ChessPiece.of(side, ChessPiece.PieceType.BISHOP));
+        addPiece(ChessPosition.of(nonPawns, 4), ChessPiece.of(side, ChessPiece.PieceType.QUEEN));
+        addPiece(ChessPosition.of(nonPawns, 5), ChessPiece.of(side, ChessPiece.PieceType.KING));
+        addPiece(ChessPosition.of(nonPawns, 6), ChessPiece.of(side, ChessPiece.PieceType.BISHOP));
+        addPiece(ChessPosition.of(nonPawns, 7), ChessPiece.of(side, ChessPiece.PieceType.KNIGHT));
+        addPiece(ChessPosition.of(nonPawns, 8), ChessPiece.of(side, ChessPiece.PieceType.ROOK));
         for(int i = 1; i <= 8; i++){
-            addPiece(new ChessPosition(pawns, i), new ChessPiece(side, ChessPiece.PieceType.PAWN));
+            addPiece(ChessPosition.of(pawns, i), ChessPiece.of(side, ChessPiece.PieceType.PAWN));
+        }
+    }
+
+    /**
+     * @return the square index used by the board for the given row and column
+     */
+    static int squareIndex(int row, int col) {
+        return (row - 1) * 8 + (col - 1);
+    }
+
+    /**
+     * @return true if the row and column are inside the 8x8 board
+     */
+    static boolean isOnBoard(int row, int col) {
+        return row >= 1 && row <= 8 && col >= 1 && col <= 8;
+    }
+
+    /**
+     * Map view over the occupied squares of the array, it never copies the pieces.
+     */
+    private class OccupiedSquares extends AbstractMap<ChessPosition, ChessPiece> {
+        @Override
+        public ChessPiece get(Object key) {
+            return key instanceof ChessPosition position ? getPiece(position) : null;
+        }
+
+        @Override
+        public boolean containsKey(Object key) {
+            return get(key) != null;
+        }
+
+        @Override
+        public Set<Entry<ChessPosition, ChessPiece>> entrySet() {
+            return new AbstractSet<>() {
+                @Override
+                public Iterator<Entry<ChessPosition, ChessPiece>> iterator() {
+                    return new OccupiedIterator();
+                }
+
+                @Override
+                public int size() {
+                    int count = 0;
+                    for (ChessPiece piece : squares) {
+                        if (piece != null) {
+                            count++;
+                        }
+                    }
+                    return count;
+                }
+            };
+        }
+    }
+
+    private class OccupiedIterator implements Iterator<Map.Entry<ChessPosition, ChessPiece>> {
+        private int next = advance(0);
+
+        private int advance(int from) {
+            while (from < squares.length && squares[from] == null) {
+                from++;
+            }
+            return from;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return next < squares.length;
+        }
+
+        @Override
+        public Map.Entry<ChessPosition, ChessPiece> next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            int square = next;
+            next = advance(square + 1);
+            return Map.entry(ChessPosition.of(square), squares[square]);
         }
     }
 }
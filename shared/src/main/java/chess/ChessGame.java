@@ -1,9 +1,9 @@
 package chess;
 
-import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
-import java.util.Map;
-import com.google.gson.annotations.SerializedName;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
 
 /**
  * For a class that can manage a chess game, making moves on a board
@@ -12,15 +12,75 @@ import com.google.gson.annotations.SerializedName;
  * signature of the existing methods.
  */
 public class ChessGame {
+    /**
+     * Castling rights, combined with | into the value of getCastlingRights
+     */
+    public static final int WHITE_KINGSIDE = 1;
+    public static final int WHITE_QUEENSIDE = 2;
+    public static final int BLACK_KINGSIDE = 4;
+    public static final int BLACK_QUEENSIDE = 8;
+    public static final int ALL_CASTLING = WHITE_KINGSIDE | WHITE_QUEENSIDE | BLACK_KINGSIDE | BLACK_QUEENSIDE;
+
+    /**
+     * Castling rights kept when a piece moves from or to each square, moving the king or a rook away
+     * or capturing a rook on its corner loses the matching rights
+     */
+    private static final int[] CASTLING_KEPT = new int[64];
+
+    static {
+        Arrays.fill(CASTLING_KEPT, ALL_CASTLING);
+        CASTLING_KEPT[0] &= ~WHITE_QUEENSIDE;
+        CASTLING_KEPT[4] &= ~(WHITE_KINGSIDE | WHITE_QUEENSIDE);
+        CASTLING_KEPT[7] &= ~WHITE_KINGSIDE;
+        CASTLING_KEPT[56] &= ~BLACK_QUEENSIDE;
+        CASTLING_KEPT[60] &= ~(BLACK_KINGSIDE | BLACK_QUEENSIDE);
+        CASTLING_KEPT[63] &= ~BLACK_KINGSIDE;
+    }
+
     private ChessBoard board;
     private TeamColor turnTeam;
     private boolean gameOver;
+    private int castlingRights;
+    private int enPassantSquare;
+    private int halfmoveClock;
+    private int fullmoveNumber;
+    private transient MoveUndo[] undoStack;
+    private transient int undoSize;
+    private transient LegalityInfo legality;
+    private transient GameStatus status;
+    private transient ChessBoard statusBoard;
+    private transient int statusVersion;
+    private transient TeamColor statusTurn;
+    private transient int statusEnPassant;
+    private transient int statusCastlingRights;
 
     public ChessGame() {
         this.board = new ChessBoard();
         this.board.resetBoard();
         this.turnTeam = TeamColor.WHITE;
         this.gameOver = false;
+        this.castlingRights = ALL_CASTLING;
+        this.enPassantSquare = -1;
+        this.halfmoveClock = 0;
+        this.fullmoveNumber = 1;
+    }
+
+    /**
+     * Creates an independent game in the same position, with its own copy of the board. The moves
+     * played so far are not copied, so the copy has nothing to undo.
+     *
+     * @return the copy
+     */
+    public ChessGame copy() {
+        ChessGame copy = new ChessGame();
+        copy.board = new ChessBoard(board);
+        copy.turnTeam = turnTeam;
+        copy.gameOver = gameOver;
+        copy.castlingRights = castlingRights;
+        copy.enPassantSquare = enPassantSquare;
+        copy.halfmoveClock = halfmoveClock;
+        copy.fullmoveNumber = fullmoveNumber;
+        return copy;
     }
 
     /**
@@ -39,6 +99,63 @@ public class ChessGame {
         this.turnTeam = team;
     }
 
+    /**
+     * @return the castling rights still held, any of WHITE_KINGSIDE, WHITE_QUEENSIDE,
+     * BLACK_KINGSIDE and BLACK_QUEENSIDE combined with |
+     */
+    public int getCastlingRights() {
+        return castlingRights;
+    }
+
+    /**
+     * Sets which castling moves the teams have not lost the right to by moving their king or rook
+     *
+     * @param castlingRights castling right constants combined with |
+     */
+    public void setCastlingRights(int castlingRights) {
+        this.castlingRights = castlingRights & ALL_CASTLING;
+    }
+
+    /**
+     * @return the square a pawn skipped with a two row move on the last turn, or null if the last
+     * move was not one. It is set after every two row move, even if no pawn can take en passant.
+     */
+    public ChessPosition getEnPassantPosition() {
+        return enPassantSquare < 0 ? null : ChessPosition.of(enPassantSquare);
+    }
+
+    /**
+     * Sets the square a pawn that just moved two rows skipped
+     *
+     * @param position the skipped square, or null if there is none
+     */
+    public void setEnPassantPosition(ChessPosition position) {
+        this.enPassantSquare = position == null ? -1
+                : ChessBoard.squareIndex(position.getRow(), position.getColumn());
+    }
+
+    /**
+     * @return number of moves since the last capture or pawn move
+     */
+    public int getHalfmoveClock() {
+        return halfmoveClock;
+    }
+
+    public void setHalfmoveClock(int halfmoveClock) {
+        this.halfmoveClock = halfmoveClock;
+    }
+
+    /**
+     * @return number of the current full move, it starts at 1 and goes up after every black move
+     */
+    public int getFullmoveNumber() {
+        return fullmoveNumber;
+    }
+
+    public void setFullmoveNumber(int fullmoveNumber) {
+        this.fullmoveNumber = fullmoveNumber;
+    }
+
     /**
      * Enum identifying the 2 possible teams in a chess game
      */
@@ -47,6 +164,24 @@ public class ChessGame {
         BLACK
     }
 
+    /**
+     * State of the game from the point of view of the team whose turn it is
+     */
+    public enum GameStatus {
+        ONGOING,
+        CHECK,
+        CHECKMATE,
+        STALEMATE,
+        RESIGNED;
+
+        /**
+         * @return true if no more moves can be made
+         */
+        public boolean isOver() {
+            return this == CHECKMATE || this == STALEMATE || this == RESIGNED;
+        }
+    }
+
     /**
      * Gets a valid moves for a piece at the given location
      *
@@ -59,20 +194,102 @@ public class ChessGame {
         if (piece == null){
             return null;
         }
-        Collection<ChessMove> canMove = piece.pieceMoves(board, startPosition);
-        Collection<ChessMove> realMoves = new ArrayList<>();
-        for(ChessMove movement : canMove){
-            ChessPosition endPos = movement.getEndPosition();
-            ChessPiece captured = board.getPiece(endPos);
-            board.addPiece(startPosition, null);
-            board.addPiece(endPos, piece);
-            if(!isInCheck(piece.getTeamColor())){
-                realMoves.add(movement);
-            }
-            board.addPiece(startPosition, piece);
-            board.addPiece(endPos, captured);
+        MoveList realMoves = new MoveList(32);
+        validMoves(ChessBoard.squareIndex(startPosition.getRow(), startPosition.getColumn()), realMoves);
+        return realMoves.toChessMoves();
+    }
+
+    /**
+     * Adds the legal moves of the piece on a square to a list the caller owns, packed as ints
+     * (see PackedMove). Nothing is added for an empty square.
+     *
+     * @param square index of the square (0 is a1, 63 is h8)
+     * @param moves the list the moves are added to
+     */
+    public void validMoves(int square, MoveList moves) {
+        ChessPiece piece = board.getPiece(square);
+        if (piece != null) {
+            BitboardMoveGenerator.addMoves(board, piece, square,
+                    legalTargets(legality(piece.getTeamColor()), piece, square), moves);
+            addSpecialMoves(piece.getTeamColor(), Bitboards.bit(square), moves);
+        }
+    }
+
+    /**
+     * Gets every legal move of a team
+     *
+     * @param teamColor the team to get moves for
+     * @return every move that team could make without leaving its king in check
+     */
+    public Collection<ChessMove> legalMoves(TeamColor teamColor) {
+        MoveList moves = new MoveList();
+        legalMoves(teamColor, moves);
+        return moves.toChessMoves();
+    }
+
+    /**
+     * Adds every legal move of a team to a list the caller owns, packed as ints (see PackedMove),
+     * without allocating anything else
+     *
+     * @param teamColor the team to get moves for
+     * @param moves the list the moves are added to
+     */
+    public void legalMoves(TeamColor teamColor, MoveList moves) {
+        LegalityInfo info = legality(teamColor);
+        long pieces = board.getPieces(teamColor);
+        while (pieces != 0) {
+            int square = Long.numberOfTrailingZeros(pieces);
+            pieces &= pieces - 1;
+            ChessPiece piece = board.getPiece(square);
+            BitboardMoveGenerator.addMoves(board, piece, square, legalTargets(info, piece, square), moves);
+        }
+        addSpecialMoves(teamColor, -1L, moves);
+    }
+
+    /**
+     * Adds the legal moves of a team that capture a piece or promote a pawn, packed as ints (see
+     * PackedMove). A search looks at only these moves past its depth limit, until the position is
+     * quiet.
+     *
+     * @param teamColor the team to get moves for
+     * @param moves the list the moves are added to
+     */
+    public void legalCaptures(TeamColor teamColor, MoveList moves) {
+        LegalityInfo info = legality(teamColor);
+        long enemies = board.getPieces(opponent(teamColor));
+        long promotionRank = teamColor == TeamColor.WHITE ? Bitboards.RANK_8 : Bitboards.RANK_1;
+        long pieces = board.getPieces(teamColor);
+        while (pieces != 0) {
+            int square = Long.numberOfTrailingZeros(pieces);
+            pieces &= pieces - 1;
+            ChessPiece piece = board.getPiece(square);
+            long wanted = piece.getPieceType() == ChessPiece.PieceType.PAWN ? enemies | promotionRank : enemies;
+            BitboardMoveGenerator.addMoves(board, piece, square, legalTargets(info, piece, square) & wanted, moves);
         }
-        return realMoves;
+        addSpecialMoves(teamColor, board.getPieces(teamColor, ChessPiece.PieceType.PAWN), moves);
+    }
+
+    /**
+     * Adds the legal moves of a team that legalCaptures leaves out: moves to empty squares that do
+     * not promote, and castling. Together the two lists hold every legal move, so a search can try
+     * the captures first and only generate these when none of them cut the search off.
+     *
+     * @param teamColor the team to get moves for
+     * @param moves the list the moves are added to
+     */
+    public void legalQuietMoves(TeamColor teamColor, MoveList moves) {
+        LegalityInfo info = legality(teamColor);
+        long empty = ~board.getOccupancy();
+        long promotionRank = teamColor == TeamColor.WHITE ? Bitboards.RANK_8 : Bitboards.RANK_1;
+        long pieces = board.getPieces(teamColor);
+        while (pieces != 0) {
+            int square = Long.numberOfTrailingZeros(pieces);
+            pieces &= pieces - 1;
+            ChessPiece piece = board.getPiece(square);
+            long wanted = piece.getPieceType() == ChessPiece.PieceType.PAWN ? empty & ~promotionRank : empty;
+            BitboardMoveGenerator.addMoves(board, piece, square, legalTargets(info, piece, square) & wanted, moves);
+        }
+        addSpecialMoves(teamColor, board.getPieces(teamColor, ChessPiece.PieceType.KING), moves);
     }
 
     /**
@@ -84,6 +301,10 @@ public class ChessGame {
     public void makeMove(ChessMove move) throws InvalidMoveException {
         ChessPosition start = move.getStartPosition();
         ChessPosition end = move.getEndPosition();
+        if (!ChessBoard.isOnBoard(start.getRow(), start.getColumn())
+                || !ChessBoard.isOnBoard(end.getRow(), end.getColumn())) {
+            throw new InvalidMoveException("Position is off the board");
+        }
         ChessPiece piece = board.getPiece(start);
 
         if (piece == null){
@@ -92,53 +313,500 @@ public class ChessGame {
         if(!piece.getTeamColor().equals(turnTeam)){
             throw new InvalidMoveException("It's not your turn");
         }
-        Collection<ChessMove> validMoves = validMoves(start);
-        if(!validMoves.contains(move)){
-            throw new InvalidMoveException("Invalid move");
+        int wanted = PackedMove.encode(move);
+        MoveList validMoves = new MoveList(32);
+        validMoves(PackedMove.from(wanted), validMoves);
+        for (int i = 0; i < validMoves.size(); i++) {
+            if (PackedMove.withoutFlags(validMoves.get(i)) == wanted) {
+                doMove(validMoves.get(i));
+                return;
+            }
         }
-        ChessPiece reverseInCaseOfCheck = board.getPiece(end);
-        board.addPiece(end, piece);
-        board.removePiece(start);
-        if(piece.getPieceType() == ChessPiece.PieceType.PAWN && (end.getRow() == 1 || end.getRow() == 8)){
-            board.addPiece(end, new ChessPiece(piece.getTeamColor(), move.getPromotionPiece()));
+        throw new InvalidMoveException("Invalid move");
+    }
+
+    /**
+     * Plays a move on the board without checking that it is legal and remembers what it changed,
+     * so it can be taken back with undoMove. After the move it is the other team's turn.
+     * A king moving two columns castles and a pawn moving diagonally to an empty square takes
+     * en passant.
+     *
+     * @param move a move produced by a move generator for the piece at its start position
+     */
+    public void doMove(ChessMove move) {
+        doMove(PackedMove.encode(move));
+    }
+
+    /**
+     * Same as doMove(ChessMove) for a packed move (see PackedMove)
+     *
+     * @param move a packed move produced by a move generator
+     */
+    public void doMove(int move) {
+        int from = PackedMove.from(move);
+        int to = PackedMove.to(move);
+        ChessPiece.PieceType promotion = PackedMove.promotion(move);
+        ChessPiece moved = board.getPiece(from);
+        ChessPiece.PieceType type = moved.getPieceType();
+        MoveUndo undo = pushUndo();
+        undo.from = from;
+        undo.to = to;
+        undo.moved = moved;
+        undo.capturedSquare = to;
+        if (type == ChessPiece.PieceType.PAWN && (from & 7) != (to & 7) && board.getPiece(to) == null) {
+            undo.capturedSquare = to + (moved.getTeamColor() == TeamColor.WHITE ? -8 : 8);
         }
+        undo.captured = board.getPiece(undo.capturedSquare);
+        undo.previousTurn = turnTeam;
+        undo.halfmoveClock = halfmoveClock;
+        undo.fullmoveNumber = fullmoveNumber;
+        undo.castlingRights = castlingRights;
+        undo.enPassantSquare = enPassantSquare;
 
-        if(isInCheck(turnTeam)){
-            board.addPiece(start, piece);
-            board.addPiece(end, reverseInCaseOfCheck);
-            throw new InvalidMoveException("Move results in Check");
+        board.setSquare(from, null);
+        if (undo.capturedSquare != to) {
+            board.setSquare(undo.capturedSquare, null);
+        }
+        board.setSquare(to, promotion == null ? moved : ChessPiece.of(moved.getTeamColor(), promotion));
+        if (type == ChessPiece.PieceType.KING && Math.abs(to - from) == 2) {
+            int rookFrom = to > from ? from + 3 : from - 4;
+            board.setSquare((from + to) / 2, board.getPiece(rookFrom));
+            board.setSquare(rookFrom, null);
+        }
+        castlingRights &= CASTLING_KEPT[from] & CASTLING_KEPT[to];
+        enPassantSquare = type == ChessPiece.PieceType.PAWN && Math.abs(to - from) == 16 ? (from + to) / 2 : -1;
+        if (undo.captured != null || type == ChessPiece.PieceType.PAWN) {
+            halfmoveClock = 0;
+        } else {
+            halfmoveClock++;
         }
-        board.clearEmptySpace();
-        turnTeam = (turnTeam == TeamColor.WHITE) ? TeamColor.BLACK : TeamColor.WHITE;
+        if (moved.getTeamColor() == TeamColor.BLACK) {
+            fullmoveNumber++;
+        }
+        turnTeam = opponent(moved.getTeamColor());
     }
 
     /**
-     * Determines if the given team is in check
+     * Passes the turn to the other team without moving a piece (a null move), which no rule allows
+     * but a search uses to see whether a position is still good if the team to move does nothing.
+     * The en passant square is cleared and the halfmove clock starts again, so positions before
+     * the pass never count as repeated after it. Taken back with undoMove.
      *
-     * @param teamColor which team to check for check
-     * @return True if the specified team is in check
+     * @throws IllegalStateException if the team to move is in check, passing would leave its king
+     * capturable
      */
-    public boolean isInCheck(TeamColor teamColor) {
-        ChessPosition whereIsTheKing = null;
-        TeamColor opponentTeam = (teamColor == TeamColor.BLACK) ? TeamColor.WHITE : TeamColor.BLACK;
-        for(Map.Entry<ChessPosition, ChessPiece> entry : new ArrayList<>(board.getBoard().entrySet())){
-            ChessPiece piece = entry.getValue();
-            if (piece != null && piece.getPieceType() == ChessPiece.PieceType.KING && piece.getTeamColor() == teamColor){
-                whereIsTheKing = entry.getKey();
-                break;
+    public void doNullMove() {
+        if (isInCheck(turnTeam)) {
+            throw new IllegalStateException("Cannot pass while in check");
+        }
+        MoveUndo undo = pushUndo();
+        undo.moved = null;
+        undo.captured = null;
+        undo.previousTurn = turnTeam;
+        undo.halfmoveClock = halfmoveClock;
+        undo.fullmoveNumber = fullmoveNumber;
+        undo.castlingRights = castlingRights;
+        undo.enPassantSquare = enPassantSquare;
+        enPassantSquare = -1;
+        halfmoveClock = 0;
+        if (turnTeam == TeamColor.BLACK) {
+            fullmoveNumber++;
+        }
+        turnTeam = opponent(turnTeam);
+    }
+
+    /**
+     * Takes back the last move played with doMove, makeMove or doNullMove
+     *
+     * @throws IllegalStateException if there is no move to take back
+     */
+    public void undoMove() {
+        if (undoSize == 0) {
+            throw new IllegalStateException("No move to undo");
+        }
+        MoveUndo undo = undoStack[--undoSize];
+        if (undo.moved == null) {
+            restoreState(undo);
+            return;
+        }
+        board.setSquare(undo.to, null);
+        board.setSquare(undo.from, undo.moved);
+        if (undo.captured != null) {
+            board.setSquare(undo.capturedSquare, undo.captured);
+        }
+        if (undo.moved.getPieceType() == ChessPiece.PieceType.KING && Math.abs(undo.to - undo.from) == 2) {
+            int rookFrom = undo.to > undo.from ? undo.from + 3 : undo.from - 4;
+            int rookTo = (undo.from + undo.to) / 2;
+            board.setSquare(rookFrom, board.getPiece(rookTo));
+            board.setSquare(rookTo, null);
+        }
+        restoreState(undo);
+        undo.moved = null;
+        undo.captured = null;
+    }
+
+    private void restoreState(MoveUndo undo) {
+        turnTeam = undo.previousTurn;
+        halfmoveClock = undo.halfmoveClock;
+        fullmoveNumber = undo.fullmoveNumber;
+        castlingRights = undo.castlingRights;
+        enPassantSquare = undo.enPassantSquare;
+    }
+
+    /**
+     * Determines if a team can move at all. It stops at the first piece with a legal target square
+     * and never builds a move, so it is much cheaper than generating the moves. In double check
+     * only the king is looked at.
+     *
+     * @param teamColor the team to look at
+     * @return true if the team has at least one move that does not leave its king in check
+     */
+    public boolean hasAnyLegalMove(TeamColor teamColor) {
+        LegalityInfo info = legality(teamColor);
+        long pieces = board.getPieces(teamColor);
+        if (info.king >= 0 && info.checkers != 0) {
+            if (legalTargets(info, board.getPiece(info.king), info.king) != 0) {
+                return true;
+            }
+            if (Long.bitCount(info.checkers) > 1) {
+                return false;
+            }
+            pieces &= ~Bitboards.bit(info.king);
+        }
+        while (pieces != 0) {
+            int square = Long.numberOfTrailingZeros(pieces);
+            pieces &= pieces - 1;
+            if (legalTargets(info, board.getPiece(square), square) != 0) {
+                return true;
             }
         }
-        for(Map.Entry<ChessPosition, ChessPiece> entry : new ArrayList<>(board.getBoard().entrySet())){
-            ChessPiece piece = entry.getValue();
-            if (piece != null && piece.getTeamColor() == opponentTeam){
-                for (ChessMove movement : piece.pieceMoves(board, entry.getKey())){
-                    if (movement.getEndPosition().equals(whereIsTheKing)) {
-                        return true;
-                    }
+        return enPassantPawns(teamColor) != 0 || castlingTargets(teamColor) != 0;
+    }
+
+    /**
+     * Gets the legal moves of a team one piece at a time, so a caller that stops early only pays for
+     * the pieces it got to. The game must not change while the iterator is in use.
+     *
+     * @param teamColor the team to get moves for
+     * @return an iterator over the same moves as legalMoves
+     */
+    public Iterator<ChessMove> legalMoveIterator(TeamColor teamColor) {
+        return new LegalMoveIterator(teamColor);
+    }
+
+    /**
+     * Walks the team's pieces, generating the moves of the next piece whenever the previous ones are
+     * used up, then the castling and en passant moves. It keeps its own pins and checkers so other
+     * calls on the game in between do not disturb it.
+     */
+    private final class LegalMoveIterator implements Iterator<ChessMove> {
+        private final TeamColor teamColor;
+        private final LegalityInfo info = new LegalityInfo();
+        private final MoveList moves = new MoveList(32);
+        private long pieces;
+        private boolean specialsAdded;
+        private int next;
+
+        LegalMoveIterator(TeamColor teamColor) {
+            this.teamColor = teamColor;
+            info.compute(teamColor);
+            pieces = board.getPieces(teamColor);
+        }
+
+        @Override
+        public boolean hasNext() {
+            while (next == moves.size()) {
+                moves.clear();
+                next = 0;
+                if (pieces != 0) {
+                    int square = Long.numberOfTrailingZeros(pieces);
+                    pieces &= pieces - 1;
+                    ChessPiece piece = board.getPiece(square);
+                    BitboardMoveGenerator.addMoves(board, piece, square, legalTargets(info, piece, square), moves);
+                } else if (!specialsAdded) {
+                    specialsAdded = true;
+                    addSpecialMoves(teamColor, -1L, moves);
+                } else {
+                    return false;
                 }
             }
+            return true;
+        }
+
+        @Override
+        public ChessMove next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            return PackedMove.toChessMove(moves.get(next++));
         }
-        return false;
+    }
+
+    /**
+     * Adds the legal castling and en passant moves of the pieces on the given squares. Unlike the
+     * other moves these depend on the game's castling rights and en passant square, not only on
+     * the board.
+     *
+     * @param from bitboard of the squares whose moves are wanted
+     */
+    private void addSpecialMoves(TeamColor teamColor, long from, MoveList moves) {
+        int king = board.getKingSquare(teamColor);
+        if (king >= 0 && (from & Bitboards.bit(king)) != 0) {
+            long targets = castlingTargets(teamColor);
+            while (targets != 0) {
+                moves.add(PackedMove.encode(king, Long.numberOfTrailingZeros(targets), null, PackedMove.CASTLE));
+                targets &= targets - 1;
+            }
+        }
+        long pawns = enPassantPawns(teamColor) & from;
+        while (pawns != 0) {
+            moves.add(PackedMove.encode(Long.numberOfTrailingZeros(pawns), enPassantSquare, null,
+                    PackedMove.EN_PASSANT | PackedMove.CAPTURE));
+            pawns &= pawns - 1;
+        }
+    }
+
+    /**
+     * @return bitboard of the squares the king can castle to: the right is kept, the king and rook
+     * stand on their starting squares, the squares between them are empty and the king is not in
+     * check and does not pass or land on an attacked square
+     */
+    private long castlingTargets(TeamColor teamColor) {
+        boolean white = teamColor == TeamColor.WHITE;
+        int rights = castlingRights & (white ? WHITE_KINGSIDE | WHITE_QUEENSIDE : BLACK_KINGSIDE | BLACK_QUEENSIDE);
+        int king = white ? 4 : 60;
+        if (rights == 0 || !ChessPiece.of(teamColor, ChessPiece.PieceType.KING).equals(board.getPiece(king))) {
+            return 0L;
+        }
+        TeamColor enemy = opponent(teamColor);
+        if (board.isSquareAttacked(king, enemy)) {
+            return 0L;
+        }
+        ChessPiece rook = ChessPiece.of(teamColor, ChessPiece.PieceType.ROOK);
+        long occupied = board.getOccupancy();
+        long targets = 0L;
+        if ((rights & (WHITE_KINGSIDE | BLACK_KINGSIDE)) != 0 && rook.equals(board.getPiece(king + 3))
+                && (occupied & (Bitboards.bit(king + 1) | Bitboards.bit(king + 2))) == 0
+                && !board.isSquareAttacked(king + 1, enemy) && !board.isSquareAttacked(king + 2, enemy)) {
+            targets |= Bitboards.bit(king + 2);
+        }
+        if ((rights & (WHITE_QUEENSIDE | BLACK_QUEENSIDE)) != 0 && rook.equals(board.getPiece(king - 4))
+                && (occupied & (Bitboards.bit(king - 1) | Bitboards.bit(king - 2) | Bitboards.bit(king - 3))) == 0
+                && !board.isSquareAttacked(king - 1, enemy) && !board.isSquareAttacked(king - 2, enemy)) {
+            targets |= Bitboards.bit(king - 2);
+        }
+        return targets;
+    }
+
+    /**
+     * Only the team to move can take en passant. A capture is legal if, with both pawns gone from
+     * their squares and the capturing pawn on the skipped square, nothing but the taken pawn attacks
+     * the king, which covers the case of both pawns leaving a row between the king and a rook.
+     *
+     * @return bitboard of the pawns that can legally take en passant
+     */
+    private long enPassantPawns(TeamColor teamColor) {
+        boolean white = teamColor == TeamColor.WHITE;
+        if (enPassantSquare < 0 || teamColor != turnTeam || enPassantSquare / 8 != (white ? 5 : 2)) {
+            return 0L;
+        }
+        TeamColor enemy = opponent(teamColor);
+        int victim = enPassantSquare + (white ? -8 : 8);
+        if (board.getPiece(enPassantSquare) != null
+                || !ChessPiece.of(enemy, ChessPiece.PieceType.PAWN).equals(board.getPiece(victim))) {
+            return 0L;
+        }
+        long pawns = Bitboards.pawnAttacks(enemy, enPassantSquare) & board.getPieces(teamColor, ChessPiece.PieceType.PAWN);
+        int king = board.getKingSquare(teamColor);
+        long legal = 0L;
+        while (pawns != 0) {
+            int from = Long.numberOfTrailingZeros(pawns);
+            pawns &= pawns - 1;
+            long occupied = (board.getOccupancy() ^ Bitboards.bit(from) ^ Bitboards.bit(victim))
+                    | Bitboards.bit(enPassantSquare);
+            if (king < 0 || (board.attackers(king, enemy, occupied) & ~Bitboards.bit(victim)) == 0) {
+                legal |= Bitboards.bit(from);
+            }
+        }
+        return legal;
+    }
+
+    /**
+     * A board set from outside the game has no history, so a team keeps a castling right as long as
+     * its king and that rook stand on their starting squares
+     */
+    private static int castlingRightsFromBoard(ChessBoard board) {
+        int rights = 0;
+        for (TeamColor color : TeamColor.values()) {
+            int king = color == TeamColor.WHITE ? 4 : 60;
+            if (ChessPiece.of(color, ChessPiece.PieceType.KING).equals(board.getPiece(king))) {
+                ChessPiece rook = ChessPiece.of(color, ChessPiece.PieceType.ROOK);
+                if (rook.equals(board.getPiece(king + 3))) {
+                    rights |= color == TeamColor.WHITE ? WHITE_KINGSIDE : BLACK_KINGSIDE;
+                }
+                if (rook.equals(board.getPiece(king - 4))) {
+                    rights |= color == TeamColor.WHITE ? WHITE_QUEENSIDE : BLACK_QUEENSIDE;
+                }
+            }
+        }
+        return rights;
+    }
+
+    /**
+     * Narrows a piece's pseudo-legal targets down to the legal ones. The king may only step on
+     * squares the other team does not attack once the king has left its square. In double check
+     * nothing else can move. In single check the other pieces must capture the checker or block it,
+     * and a pinned piece can only slide along the line between its king and the pinning piece.
+     */
+    private long legalTargets(LegalityInfo info, ChessPiece piece, int square) {
+        long targets = BitboardMoveGenerator.pseudoTargets(board, piece, square);
+        if (info.king < 0) {
+            return targets;
+        }
+        if (square == info.king) {
+            long occupied = board.getOccupancy() & ~Bitboards.bit(square);
+            long safe = 0L;
+            while (targets != 0) {
+                int to = Long.numberOfTrailingZeros(targets);
+                targets &= targets - 1;
+                if (board.attackers(to, info.opponent, occupied) == 0) {
+                    safe |= Bitboards.bit(to);
+                }
+            }
+            return safe;
+        }
+        if (Long.bitCount(info.checkers) > 1) {
+            return 0L;
+        }
+        if (info.checkers != 0) {
+            int checker = Long.numberOfTrailingZeros(info.checkers);
+            targets &= info.checkers | Bitboards.between(info.king, checker);
+        }
+        if ((info.pinned & Bitboards.bit(square)) != 0) {
+            targets &= Bitboards.line(info.king, square);
+        }
+        return targets;
+    }
+
+    private LegalityInfo legality(TeamColor teamColor) {
+        if (legality == null) {
+            legality = new LegalityInfo();
+        }
+        legality.compute(teamColor);
+        return legality;
+    }
+
+    /**
+     * Checking pieces and pinned pieces of one team, computed once per generation pass into an
+     * instance the game keeps reusing
+     */
+    private final class LegalityInfo {
+        TeamColor opponent;
+        int king;
+        long checkers;
+        long pinned;
+
+        void compute(TeamColor teamColor) {
+            opponent = opponent(teamColor);
+            king = board.getKingSquare(teamColor);
+            checkers = 0L;
+            pinned = 0L;
+            if (king < 0) {
+                return;
+            }
+            long occupied = board.getOccupancy();
+            checkers = board.attackers(king, opponent, occupied);
+            long queens = board.getPieces(opponent, ChessPiece.PieceType.QUEEN);
+            long snipers = (Bitboards.rookAttacks(king, 0L)
+                            & (board.getPieces(opponent, ChessPiece.PieceType.ROOK) | queens))
+                         | (Bitboards.bishopAttacks(king, 0L)
+                            & (board.getPieces(opponent, ChessPiece.PieceType.BISHOP) | queens));
+            while (snipers != 0) {
+                int sniper = Long.numberOfTrailingZeros(snipers);
+                snipers &= snipers - 1;
+                long blockers = Bitboards.between(king, sniper) & occupied;
+                if (Long.bitCount(blockers) == 1) {
+                    pinned |= blockers & board.getPieces(teamColor);
+                }
+            }
+        }
+    }
+
+    private MoveUndo pushUndo() {
+        if (undoStack == null) {
+            undoStack = new MoveUndo[16];
+        } else if (undoSize == undoStack.length) {
+            undoStack = Arrays.copyOf(undoStack, undoSize * 2);
+        }
+        MoveUndo undo = undoStack[undoSize];
+        if (undo == null) {
+            undo = new MoveUndo();
+            undoStack[undoSize] = undo;
+        }
+        undoSize++;
+        return undo;
+    }
+
+    private static TeamColor opponent(TeamColor color) {
+        return color == TeamColor.WHITE ? TeamColor.BLACK : TeamColor.WHITE;
+    }
+
+    /**
+     * What doMove changed, kept in a reusable stack so probing moves does not allocate.
+     * A promotion is undone by putting the moved pawn back on its start square, the rook of a
+     * castling move is found again from the king's start and end squares.
+     */
+    private static final class MoveUndo {
+        int from;
+        int to;
+        ChessPiece moved;
+        ChessPiece captured;
+        int capturedSquare;
+        TeamColor previousTurn;
+        int halfmoveClock;
+        int fullmoveNumber;
+        int castlingRights;
+        int enPassantSquare;
+    }
+
+    /**
+     * Determines if the given team is in check
+     *
+     * @param teamColor which team to check for check
+     * @return True if the specified team is in check
+     */
+    public boolean isInCheck(TeamColor teamColor) {
+        int king = board.getKingSquare(teamColor);
+        return king >= 0 && board.isSquareAttacked(king, opponent(teamColor));
+    }
+
+    /**
+     * Gets the Zobrist key of the position: the board's piece key combined with the side to move,
+     * the castling rights and the en passant column. The en passant column only counts when a pawn
+     * of the team to move stands next to the pawn that moved two rows, so positions that only
+     * differ by an en passant square nobody can use share a key. It follows every makeMove, doMove
+     * and undoMove without rescanning the board.
+     *
+     * @return 64-bit key identifying the position
+     */
+    public long getZobristKey() {
+        long key = board.getZobristKey() ^ Zobrist.side(turnTeam) ^ Zobrist.castling(castlingRights);
+        if (enPassantSquare >= 0 && (Bitboards.pawnAttacks(opponent(turnTeam), enPassantSquare)
+                & board.getPieces(turnTeam, ChessPiece.PieceType.PAWN)) != 0) {
+            key ^= Zobrist.enPassant(enPassantSquare);
+        }
+        return key;
+    }
+
+    /**
+     * Determines if any piece of a team attacks a square
+     *
+     * @param square the square to look at
+     * @param byColor which team is attacking
+     * @return True if a piece of that team could capture on the square
+     */
+    public boolean isSquareAttacked(ChessPosition square, TeamColor byColor) {
+        return board.isSquareAttacked(ChessBoard.squareIndex(square.getRow(), square.getColumn()), byColor);
     }
 
     /**
@@ -148,30 +816,10 @@ public class ChessGame {
      * @return True if the specified team is in checkmate
      */
     public boolean isInCheckmate(TeamColor teamColor) {
-        if(!isInCheck(teamColor)){
-            return false;
-        }
-        for(Map.Entry<ChessPosition, ChessPiece> entry : new ArrayList<>(board.getBoard().entrySet())){
-            ChessPiece piece = entry.getValue();
-            ChessPosition inTheStart = entry.getKey();
-            if(piece != null && piece.getTeamColor() == teamColor){
-                Collection<ChessMove> realMoves = validMoves(inTheStart);
-                for(ChessMove movement : realMoves){
-                    ChessPiece captured = board.getPiece(movement.getEndPosition());
-                    board.addPiece(movement.getEndPosition(), piece);
-                    board.addPiece(inTheStart, null);
-                    if (!isInCheck(teamColor)){
-                        board.addPiece(inTheStart, piece);
-                        board.addPiece(movement.getEndPosition(), captured);
-                        return false;
-                    }
-                    board.addPiece(inTheStart, piece);
-                    board.addPiece(movement.getEndPosition(), captured);
-                }
-            }
+        if (teamColor == turnTeam) {
+            return getStatus() == GameStatus.CHECKMATE;
         }
-
-            return true;
+        return isInCheck(teamColor) && !hasAnyLegalMove(teamColor);
     }
 
     /**
@@ -182,29 +830,33 @@ public class ChessGame {
      * @return True if the specified team is in stalemate, otherwise false
      */
     public boolean isInStalemate(TeamColor teamColor) {
-        if (isInCheck(teamColor)){
-            return false;
-        }
-        for(Map.Entry<ChessPosition, ChessPiece> entry : new ArrayList<>(board.getBoard().entrySet())){
-            ChessPiece piece = entry.getValue();
-            ChessPosition inTheStart = entry.getKey();
-            if(piece != null && piece.getTeamColor() == teamColor){
-                Collection<ChessMove> realMoves = validMoves(inTheStart);
-                if(!realMoves.isEmpty()) {
-                    return false;
-                }
-            }
+        if (teamColor == turnTeam) {
+            return getStatus() == GameStatus.STALEMATE;
         }
-        return true;
+        return !isInCheck(teamColor) && !hasAnyLegalMove(teamColor);
     }
 
     /**
-     * Sets this game's chessboard with a given board
+     * Looks the position up in the endgame bitbases (see Bitbase), which know the result of king
+     * and pawn, rook or queen against king, and that bare kings or a lone minor piece cannot win
+     *
+     * @return the result with best play for the team to move, or null if the position is not covered
+     */
+    public Bitbase.Outcome getEndgameOutcome() {
+        return Bitbase.probe(this);
+    }
+
+    /**
+     * Sets this game's chessboard with a given board. The castling rights are taken from where the
+     * kings and rooks stand and there is no en passant square.
      *
      * @param board the new board to use
      */
     public void setBoard(ChessBoard board) {
         this.board = board;
+        this.undoSize = 0;
+        this.castlingRights = castlingRightsFromBoard(board);
+        this.enPassantSquare = -1;
     }
 
     /**
@@ -220,8 +872,39 @@ public class ChessGame {
         this.gameOver = gameOver;
     }
 
+    /**
+     * @return true if the game was resigned or the team to move is checkmated or stalemated
+     */
     public boolean isGameOver() {
-        return gameOver || isInCheckmate(TeamColor.WHITE) || isInCheckmate(TeamColor.BLACK) ||
-                isInStalemate(TeamColor.WHITE) || isInStalemate(TeamColor.BLACK);
+        return getStatus().isOver();
+    }
+
+    /**
+     * Gets the state of the game for the team whose turn it is. The result is computed with a single
+     * pass looking for any legal move and is reused until the board, the turn, the en passant square
+     * or the resigned flag changes, so it is cheap to ask for repeatedly between moves.
+     *
+     * @return the current status, a checkmate or stalemate is reported even if the game was also resigned
+     */
+    public GameStatus getStatus() {
+        if (status == null || statusBoard != board || statusVersion != board.getVersion()
+                || statusTurn != turnTeam || statusEnPassant != enPassantSquare
+                || statusCastlingRights != castlingRights) {
+            boolean inCheck = isInCheck(turnTeam);
+            if (!hasAnyLegalMove(turnTeam)) {
+                status = inCheck ? GameStatus.CHECKMATE : GameStatus.STALEMATE;
+            } else {
+                status = inCheck ? GameStatus.CHECK : GameStatus.ONGOING;
+            }
+            statusBoard = board;
+            statusVersion = board.getVersion();
+            statusTurn = turnTeam;
+            statusEnPassant = enPassantSquare;
+            statusCastlingRights = castlingRights;
+        }
+        if (gameOver && !status.isOver()) {
+            return GameStatus.RESIGNED;
+        }
+        return status;
     }
 }
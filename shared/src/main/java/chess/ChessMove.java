@@ -9,6 +9,24 @@ import java.util.Objects;
  * signature of the existing methods.
  */
 public class ChessMove {
+    private static final ChessPiece.PieceType[] TYPES = ChessPiece.PieceType.values();
+    /**
+     * One slot per start square, end square and promotion (none plus the piece types), all filled
+     * when the class is loaded, so every thread sees the same instance of a move
+     */
+    private static final ChessMove[] MOVES = new ChessMove[64 * 64 * (TYPES.length + 1)];
+
+    static {
+        for (int from = 0; from < 64; from++) {
+            for (int to = 0; to < 64; to++) {
+                MOVES[slot(from, to, null)] = new ChessMove(ChessPosition.of(from), ChessPosition.of(to), null);
+                for (ChessPiece.PieceType type : TYPES) {
+                    MOVES[slot(from, to, type)] = new ChessMove(ChessPosition.of(from), ChessPosition.of(to), type);
+                }
+            }
+        }
+    }
+
     private final ChessPosition startPosition;
     private final ChessPosition endPosition;
     private final ChessPiece.PieceType promotionPiece;
@@ -20,6 +38,35 @@ public class ChessMove {
         this.promotionPiece = promotionPiece;
     }
 
+    /**
+     * Gets the shared instance of a move
+     *
+     * @param startPosition where the piece starts
+     * @param endPosition where the piece ends
+     * @param promotionPiece piece a pawn is promoted to, or null
+     * @return the shared move, or a new one for positions outside the board
+     */
+    public static ChessMove of(ChessPosition startPosition, ChessPosition endPosition,
+                               ChessPiece.PieceType promotionPiece) {
+        if (!ChessBoard.isOnBoard(startPosition.getRow(), startPosition.getColumn())
+                || !ChessBoard.isOnBoard(endPosition.getRow(), endPosition.getColumn())) {
+            return new ChessMove(startPosition, endPosition, promotionPiece);
+        }
+        return of(ChessBoard.squareIndex(startPosition.getRow(), startPosition.getColumn()),
+                ChessBoard.squareIndex(endPosition.getRow(), endPosition.getColumn()), promotionPiece);
+    }
+
+    /**
+     * Gets the shared instance of a move by square indexes (0 is a1, 63 is h8)
+     */
+    public static ChessMove of(int from, int to, ChessPiece.PieceType promotionPiece) {
+        return MOVES[slot(from, to, promotionPiece)];
+    }
+
+    private static int slot(int from, int to, ChessPiece.PieceType promotionPiece) {
+        return ((from << 6) | to) * (TYPES.length + 1) + (promotionPiece == null ? 0 : promotionPiece.ordinal() + 1);
+    }
+
     /**
      * @return ChessPosition of starting location
      */
@@ -47,6 +94,9 @@ public class ChessMove {
 
     @Override
     public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
         if (o == null || getClass() != o.getClass()) {
             return false;
         }
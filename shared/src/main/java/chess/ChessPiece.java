@@ -1,8 +1,6 @@
 package chess;
 
-import java.util.ArrayList;
 import java.util.Collection;
-import java.util.List;
 import java.util.Objects;
 
 /**
@@ -12,15 +10,40 @@ import java.util.Objects;
  * signature of the existing methods.
  */
 public class ChessPiece {
-    private ChessGame.TeamColor color;
-    private PieceType type;
+    private static final ChessPiece[] PIECES = new ChessPiece[12];
+
+    static {
+        for (ChessGame.TeamColor color : ChessGame.TeamColor.values()) {
+            for (PieceType type : PieceType.values()) {
+                PIECES[color.ordinal() * 6 + type.ordinal()] = new ChessPiece(color, type);
+            }
+        }
+    }
+
+    private final ChessGame.TeamColor color;
+    private final PieceType type;
     public ChessPiece(ChessGame.TeamColor pieceColor, ChessPiece.PieceType type) {
     this.color = pieceColor;
     this.type = type;
     }
 
+    /**
+     * Gets the shared instance for a color and type, pieces cannot change so the 12 instances
+     * can be placed on any number of boards
+     *
+     * @param color team of the piece
+     * @param type kind of piece
+     * @return the shared piece
+     */
+    public static ChessPiece of(ChessGame.TeamColor color, PieceType type) {
+        return PIECES[color.ordinal() * 6 + type.ordinal()];
+    }
+
     @Override
     public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
         if (o == null || getClass() != o.getClass()) {
             return false;
         }
@@ -75,124 +98,108 @@ public class ChessPiece {
      * @return Collection of valid moves
      */
     public Collection<ChessMove> pieceMoves(ChessBoard board, ChessPosition myPosition) {
-        List<ChessMove> validMoves = new ArrayList<>();
+        MoveList moves = new MoveList(32);
+        pieceMoves(board, ChessBoard.squareIndex(myPosition.getRow(), myPosition.getColumn()), moves);
+        return moves.toChessMoves();
+    }
 
+    /**
+     * Calculates all the moves this piece can make from a square without allocating, the moves are
+     * packed as ints (see PackedMove) and added to a list the caller owns and reuses.
+     * Does not take into account moves that are illegal due to leaving the king in danger
+     *
+     * @param board the board the piece is on
+     * @param square index of the square the piece stands on
+     * @param moves list the moves are added to
+     */
+    public void pieceMoves(ChessBoard board, int square, MoveList moves) {
+        int row = square / 8 + 1;
+        int col = square % 8 + 1;
         switch (type){
-            case KING: addKingMove(board, myPosition, validMoves); break;
+            case KING: addSteps(board, square, row, col, KING_DELTAS, moves); break;
             case QUEEN:
-                addRookMove(board, myPosition, validMoves);
-                addBishopMove(board, myPosition, validMoves);
+                addSlides(board, square, row, col, ROOK_DIRECTIONS, moves);
+                addSlides(board, square, row, col, BISHOP_DIRECTIONS, moves);
                 break;
-            case ROOK: addRookMove(board, myPosition, validMoves); break;
-            case BISHOP: addBishopMove(board, myPosition, validMoves); break;
-            case KNIGHT: addKnightMove(board, myPosition, validMoves); break;
-            case PAWN: addPawnMove(board, myPosition, validMoves); break;
+            case ROOK: addSlides(board, square, row, col, ROOK_DIRECTIONS, moves); break;
+            case BISHOP: addSlides(board, square, row, col, BISHOP_DIRECTIONS, moves); break;
+            case KNIGHT: addSteps(board, square, row, col, KNIGHT_DELTAS, moves); break;
+            case PAWN: addPawnMove(board, square, row, col, moves); break;
         }
-        return validMoves;
-    }
-    private boolean isValidPosition(ChessPosition position) {
-        return position.getRow() >= 1 && position.getRow() <= 8 &&
-                position.getColumn() >= 1 && position.getColumn() <= 8;
     }
 
-    private void addKingMove(ChessBoard board, ChessPosition myPosition, List<ChessMove> validMoves){
-        int[] deltas = {-1, 0, 1};
-        for (int rowDelta : deltas){
-            for (int colDelta : deltas){
-                if (rowDelta == 0 && colDelta == 0){
-                    continue;
+    private static final int[][] KING_DELTAS = {{1, -1}, {1, 0}, {1, 1}, {0, -1}, {0, 1}, {-1, -1}, {-1, 0}, {-1, 1}};
+    private static final int[][] ROOK_DIRECTIONS = {{1, 0}, {-1, 0}, {0, 1}, {0, -1}};
+    private static final int[][] BISHOP_DIRECTIONS = {{1, 1}, {1, -1}, {-1, 1}, {-1, -1}};
+    private static final int[][] KNIGHT_DELTAS = {{2, 1}, {2, -1}, {-2, 1}, {-2, -1}, {1, 2}, {1, -2}, {-1, 2}, {-1, -2}};
+    private static final PieceType[] PROMOTIONS = {PieceType.QUEEN, PieceType.BISHOP, PieceType.ROOK, PieceType.KNIGHT};
+
+    private void addSteps(ChessBoard board, int square, int row, int col, int[][] deltas, MoveList moves) {
+        for (int[] delta : deltas) {
+            int newRow = row + delta[0];
+            int newCol = col + delta[1];
+            if (ChessBoard.isOnBoard(newRow, newCol)) {
+                ChessPiece pieceAtNewPos = board.getPiece(newRow, newCol);
+                if (pieceAtNewPos == null) {
+                    moves.add(PackedMove.encode(square, ChessBoard.squareIndex(newRow, newCol), null, 0));
+                } else if (pieceAtNewPos.getTeamColor() != this.color) {
+                    moves.add(PackedMove.encode(square, ChessBoard.squareIndex(newRow, newCol), null,
+                            PackedMove.CAPTURE));
                 }
-                addOneMove(board, myPosition, validMoves, rowDelta, colDelta);
             }
         }
     }
 
-    private void addRookMove(ChessBoard board, ChessPosition myPosition, List<ChessMove> validMoves){
-        int[] [] movementOptions = {{1, 0}, {-1, 0}, {0, 1}, {0, -1}};
-        for (int[] direction : movementOptions) {
-            addMovesInDirection(board, myPosition, validMoves, direction[0], direction[1]);
-        }
-    }
-
-    private void addBishopMove(ChessBoard board, ChessPosition myPosition, List<ChessMove> validMoves){
-        int[] deltas = {-1, 1};
-        for (int rowDelta : deltas){
-            for (int colDelta : deltas){
-                addMovesInDirection(board, myPosition, validMoves, rowDelta, colDelta);
-            }
-        }
-    }
-    private void addKnightMove(ChessBoard board, ChessPosition myPosition, List<ChessMove> validMoves) {
-        int[][] knightMoves = {{2, 1}, {2, -1}, {-2, 1}, {-2, -1}, {1, 2}, {1, -2}, {-1, 2}, {-1, -2}};
-        for (int[] movement : knightMoves) {
-            addOneMove(board, myPosition, validMoves, movement[0], movement[1]);
-        }
-    }
-    private void addPawnMove(ChessBoard board, ChessPosition myPosition, List<ChessMove> validMoves) {
-        int direction = (this.color == ChessGame.TeamColor.BLACK) ? -1 : 1;
-        ChessPosition normalMovement = new ChessPosition(myPosition.getRow() + direction, myPosition.getColumn());
-        if (isValidPosition(normalMovement) && board.getPiece(normalMovement) == null) {
-            promotionPawn(myPosition, normalMovement, validMoves);
-        }
-        if((this.color == ChessGame.TeamColor.BLACK && myPosition.getRow() == 7) ||
-           (this.color == ChessGame.TeamColor.WHITE && myPosition.getRow() == 2)) {
-            ChessPosition firstMovement = new ChessPosition(myPosition.getRow() + 2 * direction, myPosition.getColumn());
-            if (board.getPiece(firstMovement) == null && board.getPiece(normalMovement) == null){
-                validMoves.add(new ChessMove(myPosition, firstMovement, null));
-            }
-        }
-        int[] captureDeltas = {-1, 1};
-        for (int delta : captureDeltas) {
-            ChessPosition capturePosition = new ChessPosition(myPosition.getRow() + direction, myPosition.getColumn() + delta);
-            if (isValidPosition(capturePosition)) {
-                ChessPiece pieceAtNewPosition = board.getPiece(capturePosition);
-                if (pieceAtNewPosition != null && pieceAtNewPosition.getTeamColor() != this.color){
-                    promotionPawn(myPosition, capturePosition, validMoves);
-                }
-            }
-        }
-
-    }
-    private void addMovesInDirection(ChessBoard board, ChessPosition myPosition, List<ChessMove> validMoves,
-                                     int rowDelta, int colDelta){
-        for (int i = 1; i <= 8; i++){
-            ChessPosition newPosition = new ChessPosition(myPosition.getRow() + rowDelta * i,
-                                                        myPosition.getColumn() + colDelta * i);
-            if (isValidPosition(newPosition)) {
-                ChessPiece pieceAtNewPosition = board.getPiece(newPosition);
-                if (pieceAtNewPosition == null){
-                    validMoves.add(new ChessMove(myPosition, newPosition, null));
-                }else if(pieceAtNewPosition.getTeamColor() != this.color){
-                    validMoves.add(new ChessMove(myPosition, newPosition, null));
-                    break;
-                }else{
+    private void addSlides(ChessBoard board, int square, int row, int col, int[][] directions, MoveList moves) {
+        for (int[] direction : directions) {
+            int newRow = row + direction[0];
+            int newCol = col + direction[1];
+            while (ChessBoard.isOnBoard(newRow, newCol)) {
+                ChessPiece pieceAtNewPosition = board.getPiece(newRow, newCol);
+                if (pieceAtNewPosition == null) {
+                    moves.add(PackedMove.encode(square, ChessBoard.squareIndex(newRow, newCol), null, 0));
+                } else {
+                    if (pieceAtNewPosition.getTeamColor() != this.color) {
+                        moves.add(PackedMove.encode(square, ChessBoard.squareIndex(newRow, newCol), null,
+                                PackedMove.CAPTURE));
+                    }
                     break;
                 }
-            } else{
-                break;
+                newRow += direction[0];
+                newCol += direction[1];
             }
         }
     }
 
-    private void addOneMove(ChessBoard board, ChessPosition myPosition, List<ChessMove> validMoves, int rowDelta, int colDelta){
-        ChessPosition newPos = new ChessPosition(myPosition.getRow() + rowDelta, myPosition.getColumn() + colDelta);
-        if (isValidPosition(newPos)) {
-            ChessPiece pieceAtNewPos = board.getPiece(newPos);
-            if (pieceAtNewPos == null || pieceAtNewPos.getTeamColor() != this.color) {
-                validMoves.add(new ChessMove(myPosition, newPos, null));
+    private void addPawnMove(ChessBoard board, int square, int row, int col, MoveList moves) {
+        int direction = (this.color == ChessGame.TeamColor.BLACK) ? -1 : 1;
+        int nextRow = row + direction;
+        if (ChessBoard.isOnBoard(nextRow, col) && board.getPiece(nextRow, col) == null) {
+            promotionPawn(square, nextRow, col, 0, moves);
+            boolean startingRow = (this.color == ChessGame.TeamColor.BLACK && row == 7) ||
+                                  (this.color == ChessGame.TeamColor.WHITE && row == 2);
+            if (startingRow && board.getPiece(row + 2 * direction, col) == null) {
+                moves.add(PackedMove.encode(square, ChessBoard.squareIndex(row + 2 * direction, col), null,
+                        PackedMove.DOUBLE_PUSH));
+            }
+        }
+        for (int delta = -1; delta <= 1; delta += 2) {
+            ChessPiece pieceAtNewPosition = board.getPiece(nextRow, col + delta);
+            if (pieceAtNewPosition != null && pieceAtNewPosition.getTeamColor() != this.color){
+                promotionPawn(square, nextRow, col + delta, PackedMove.CAPTURE, moves);
             }
         }
     }
 
-    private void promotionPawn(ChessPosition start, ChessPosition end, List<ChessMove> validMoves) {
-        boolean promoRow = end.getRow() == (this.color == ChessGame.TeamColor.BLACK ? 1 : 8);
+    private void promotionPawn(int square, int row, int col, int flags, MoveList moves) {
+        int to = ChessBoard.squareIndex(row, col);
+        boolean promoRow = row == (this.color == ChessGame.TeamColor.BLACK ? 1 : 8);
         if (promoRow) {
-            validMoves.add(new ChessMove(start, end, PieceType.QUEEN));
-            validMoves.add(new ChessMove(start, end, PieceType.BISHOP));
-            validMoves.add(new ChessMove(start, end, PieceType.ROOK));
-            validMoves.add(new ChessMove(start, end, PieceType.KNIGHT));
+            for (PieceType promotion : PROMOTIONS) {
+                moves.add(PackedMove.encode(square, to, promotion, flags));
+            }
         } else {
-            validMoves.add(new ChessMove(start, end, null));
+            moves.add(PackedMove.encode(square, to, null, flags));
         }
     }
 }
@@ -10,6 +10,14 @@ import java.util.Objects;
  */
 public class ChessPosition {
 
+    private static final ChessPosition[] POSITIONS = new ChessPosition[64];
+
+    static {
+        for (int square = 0; square < 64; square++) {
+            POSITIONS[square] = new ChessPosition(square / 8 + 1, square % 8 + 1);
+        }
+    }
+
     private final int row;
     private final int col;
 
@@ -18,6 +26,29 @@ public class ChessPosition {
         this.col = col;
     }
 
+    /**
+     * Gets the shared instance for a square, there is only one per square of the board so it
+     * can be handed out freely instead of allocating a new position
+     *
+     * @param row 1 codes for the bottom row
+     * @param col 1 codes for the left column
+     * @return the shared position, or a new one for coordinates outside the board
+     */
+    public static ChessPosition of(int row, int col) {
+        if (!ChessBoard.isOnBoard(row, col)) {
+            return new ChessPosition(row, col);
+        }
+        return POSITIONS[ChessBoard.squareIndex(row, col)];
+    }
+
+    /**
+     * @param square index of the square (0 is a1, 63 is h8)
+     * @return the shared position for that square
+     */
+    public static ChessPosition of(int square) {
+        return POSITIONS[square];
+    }
+
     /**
      * @return which row this position is in
      * 1 codes for the bottom row
@@ -37,6 +68,9 @@ public class ChessPosition {
 
     @Override
     public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
         if (o == null || getClass() != o.getClass()) {
             return false;
         }
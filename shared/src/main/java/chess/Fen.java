@@ -0,0 +1,204 @@
+package chess;
+
+/**
+ * Reads and writes positions in Forsyth-Edwards Notation, for example the starting position is
+ * {@code rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1}. The fields are the pieces row by
+ * row from row 8 down (upper case is white, digits count empty squares), the team to move, the
+ * castling rights, the en passant square and the two move clocks.
+ */
+public final class Fen {
+    public static final String STARTING_POSITION = "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1";
+
+    private static final String PIECE_LETTERS = "kqbnrp";
+
+    private Fen() {
+    }
+
+    /**
+     * Builds a game from a FEN string. The castling, en passant and clock fields may be left out,
+     * as they are in most test suites, and then default to none, none, 0 and 1.
+     *
+     * @param fen the position
+     * @return a new game in that position
+     * @throws IllegalArgumentException if the string is not a valid FEN
+     */
+    public static ChessGame parse(String fen) {
+        String[] fields = fen.trim().split("\\s+");
+        if (fields.length < 2 || fields.length > 6) {
+            throw new IllegalArgumentException("Invalid FEN, expected 2 to 6 fields: " + fen);
+        }
+        ChessGame game = new ChessGame();
+        game.setBoard(parseBoard(fields[0]));
+        ChessGame.TeamColor turn = switch (fields[1]) {
+            case "w" -> ChessGame.TeamColor.WHITE;
+            case "b" -> ChessGame.TeamColor.BLACK;
+            default -> throw new IllegalArgumentException("Invalid FEN, unknown side to move: " + fields[1]);
+        };
+        game.setTeamTurn(turn);
+        game.setCastlingRights(fields.length > 2 ? parseCastling(fields[2]) : 0);
+        game.setEnPassantPosition(fields.length > 3 && !fields[3].equals("-") ? parseEnPassant(fields[3], turn) : null);
+        game.setHalfmoveClock(fields.length > 4 ? parseNumber(fields[4]) : 0);
+        game.setFullmoveNumber(fields.length > 5 ? parseNumber(fields[5]) : 1);
+        return game;
+    }
+
+    /**
+     * @param game the game to describe
+     * @return the FEN string of the game's current position
+     */
+    public static String format(ChessGame game) {
+        StringBuilder fen = new StringBuilder(90);
+        fen.append(formatBoard(game.getBoard()));
+        fen.append(game.getTeamTurn() == ChessGame.TeamColor.WHITE ? " w " : " b ");
+        int rights = game.getCastlingRights();
+        if (rights == 0) {
+            fen.append('-');
+        }
+        if ((rights & ChessGame.WHITE_KINGSIDE) != 0) {
+            fen.append('K');
+        }
+        if ((rights & ChessGame.WHITE_QUEENSIDE) != 0) {
+            fen.append('Q');
+        }
+        if ((rights & ChessGame.BLACK_KINGSIDE) != 0) {
+            fen.append('k');
+        }
+        if ((rights & ChessGame.BLACK_QUEENSIDE) != 0) {
+            fen.append('q');
+        }
+        ChessPosition enPassant = game.getEnPassantPosition();
+        fen.append(' ').append(enPassant == null ? "-" : formatPosition(enPassant));
+        fen.append(' ').append(game.getHalfmoveClock());
+        fen.append(' ').append(game.getFullmoveNumber());
+        return fen.toString();
+    }
+
+    /**
+     * @param placement the first field of a FEN string
+     * @return a new board with those pieces
+     * @throws IllegalArgumentException if the field does not describe 8 rows of 8 squares
+     */
+    public static ChessBoard parseBoard(String placement) {
+        String[] rows = placement.split("/");
+        if (rows.length != 8) {
+            throw new IllegalArgumentException("Invalid FEN, expected 8 rows: " + placement);
+        }
+        ChessBoard board = new ChessBoard();
+        for (int i = 0; i < 8; i++) {
+            int row = 8 - i;
+            int col = 1;
+            for (char c : rows[i].toCharArray()) {
+                if (c >= '1' && c <= '8') {
+                    col += c - '0';
+                    continue;
+                }
+                int type = PIECE_LETTERS.indexOf(Character.toLowerCase(c));
+                if (type < 0 || col > 8) {
+                    throw new IllegalArgumentException("Invalid FEN row: " + rows[i]);
+                }
+                ChessGame.TeamColor color = Character.isUpperCase(c) ? ChessGame.TeamColor.WHITE
+                        : ChessGame.TeamColor.BLACK;
+                board.addPiece(ChessPosition.of(row, col), ChessPiece.of(color, ChessPiece.PieceType.values()[type]));
+                col++;
+            }
+            if (col != 9) {
+                throw new IllegalArgumentException("Invalid FEN, row does not have 8 squares: " + rows[i]);
+            }
+        }
+        return board;
+    }
+
+    /**
+     * @param board the board to describe
+     * @return the first field of a FEN string for the board
+     */
+    public static String formatBoard(ChessBoard board) {
+        StringBuilder placement = new StringBuilder(72);
+        for (int row = 8; row >= 1; row--) {
+            int empty = 0;
+            for (int col = 1; col <= 8; col++) {
+                ChessPiece piece = board.getPiece(row, col);
+                if (piece == null) {
+                    empty++;
+                    continue;
+                }
+                if (empty > 0) {
+                    placement.append(empty);
+                    empty = 0;
+                }
+                char letter = PIECE_LETTERS.charAt(piece.getPieceType().ordinal());
+                placement.append(piece.getTeamColor() == ChessGame.TeamColor.WHITE
+                        ? Character.toUpperCase(letter) : letter);
+            }
+            if (empty > 0) {
+                placement.append(empty);
+            }
+            if (row > 1) {
+                placement.append('/');
+            }
+        }
+        return placement.toString();
+    }
+
+    /**
+     * @param name a square name such as "e4"
+     * @return the position of that square
+     * @throws IllegalArgumentException if the name is not a square
+     */
+    public static ChessPosition parsePosition(String name) {
+        if (name.length() != 2 || name.charAt(0) < 'a' || name.charAt(0) > 'h'
+                || name.charAt(1) < '1' || name.charAt(1) > '8') {
+            throw new IllegalArgumentException("Invalid square: " + name);
+        }
+        return ChessPosition.of(name.charAt(1) - '0', name.charAt(0) - 'a' + 1);
+    }
+
+    /**
+     * @return the name of the square, such as "e4"
+     */
+    public static String formatPosition(ChessPosition position) {
+        return "" + (char) ('a' + position.getColumn() - 1) + position.getRow();
+    }
+
+    private static int parseCastling(String field) {
+        if (field.equals("-")) {
+            return 0;
+        }
+        int rights = 0;
+        for (char c : field.toCharArray()) {
+            rights |= switch (c) {
+                case 'K' -> ChessGame.WHITE_KINGSIDE;
+                case 'Q' -> ChessGame.WHITE_QUEENSIDE;
+                case 'k' -> ChessGame.BLACK_KINGSIDE;
+                case 'q' -> ChessGame.BLACK_QUEENSIDE;
+                default -> throw new IllegalArgumentException("Invalid FEN castling rights: " + field);
+            };
+        }
+        return rights;
+    }
+
+    /**
+     * The square a pawn skipped over, behind the pawn of the team that just moved: row 6 when white
+     * is to move and row 3 when black is
+     */
+    private static ChessPosition parseEnPassant(String field, ChessGame.TeamColor turn) {
+        ChessPosition position = parsePosition(field);
+        if (position.getRow() != (turn == ChessGame.TeamColor.WHITE ? 6 : 3)) {
+            throw new IllegalArgumentException("Invalid FEN en passant square: " + field);
+        }
+        return position;
+    }
+
+    private static int parseNumber(String field) {
+        int number;
+        try {
+            number = Integer.parseInt(field);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid FEN move clock: " + field);
+        }
+        if (number < 0) {
+            throw new IllegalArgumentException("Invalid FEN move clock: " + field);
+        }
+        return number;
+    }
+}
@@ -0,0 +1,97 @@
+package chess;
+
+/**
+ * Encodes a move in a single int so move generation does not have to allocate ChessMove and
+ * ChessPosition objects. Bits 0-5 hold the start square, bits 6-11 the end square (squares are
+ * numbered like ChessBoard, a1 is 0 and h8 is 63), bits 12-14 the promotion piece and the bits
+ * above that hold flags describing the move.
+ */
+public final class PackedMove {
+    /**
+     * Value that never encodes a real move
+     */
+    public static final int NONE = 0;
+    /**
+     * The move takes a piece
+     */
+    public static final int CAPTURE = 1 << 15;
+    /**
+     * A pawn moving two rows from its starting row
+     */
+    public static final int DOUBLE_PUSH = 1 << 16;
+    /**
+     * The king moving two columns towards a rook, which jumps over it
+     */
+    public static final int CASTLE = 1 << 17;
+    /**
+     * A pawn capturing a pawn that just moved two rows, by moving to the square it skipped
+     */
+    public static final int EN_PASSANT = 1 << 18;
+
+    private static final ChessPiece.PieceType[] TYPES = ChessPiece.PieceType.values();
+
+    private PackedMove() {
+    }
+
+    /**
+     * @param from start square index
+     * @param to end square index
+     * @param promotion piece a pawn promotes to, or null
+     * @param flags any of the flag constants combined with |
+     * @return the packed move
+     */
+    public static int encode(int from, int to, ChessPiece.PieceType promotion, int flags) {
+        int promotionBits = promotion == null ? 0 : promotion.ordinal() + 1;
+        return from | (to << 6) | (promotionBits << 12) | flags;
+    }
+
+    /**
+     * Packs a ChessMove, no flags are set since they depend on the board
+     *
+     * @throws IllegalArgumentException if the move starts or ends off the board
+     */
+    public static int encode(ChessMove move) {
+        ChessPosition start = move.getStartPosition();
+        ChessPosition end = move.getEndPosition();
+        if (!ChessBoard.isOnBoard(start.getRow(), start.getColumn())
+                || !ChessBoard.isOnBoard(end.getRow(), end.getColumn())) {
+            throw new IllegalArgumentException("Move is off the board: " + move);
+        }
+        return encode(ChessBoard.squareIndex(start.getRow(), start.getColumn()),
+                ChessBoard.squareIndex(end.getRow(), end.getColumn()), move.getPromotionPiece(), 0);
+    }
+
+    public static int from(int move) {
+        return move & 0x3F;
+    }
+
+    public static int to(int move) {
+        return (move >>> 6) & 0x3F;
+    }
+
+    /**
+     * @return the promotion piece, or null if the move is not a promotion
+     */
+    public static ChessPiece.PieceType promotion(int move) {
+        int bits = (move >>> 12) & 0x7;
+        return bits == 0 ? null : TYPES[bits - 1];
+    }
+
+    public static boolean isCapture(int move) {
+        return (move & CAPTURE) != 0;
+    }
+
+    /**
+     * @return the move without its flags, two moves with the same squares and promotion compare equal
+     */
+    public static int withoutFlags(int move) {
+        return move & 0x7FFF;
+    }
+
+    /**
+     * Converts a packed move back to a shared ChessMove, this is meant for the public API boundary only
+     */
+    public static ChessMove toChessMove(int move) {
+        return ChessMove.of(from(move), to(move), promotion(move));
+    }
+}
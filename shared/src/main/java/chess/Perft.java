@@ -0,0 +1,254 @@
+package chess;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+/**
+ * Counts every sequence of legal moves of a given length from a position (perft). The counts for
+ * well known positions are published, so comparing against them checks the move generator, and
+ * the time it takes measures how fast moves are generated, played and taken back.
+ * <p>
+ * The moves are played on the game given to the constructor and taken back before a count returns.
+ * A Perft keeps one reusable move list per ply, so one instance must not be used by several
+ * threads at once; countParallel gives every worker its own copy of the game.
+ */
+public final class Perft {
+    private final ChessGame game;
+    private MoveList[] moves = new MoveList[0];
+    private long[] table;
+    private int tableMask;
+
+    /**
+     * @param game the game whose current position is counted from
+     */
+    public Perft(ChessGame game) {
+        this.game = game;
+    }
+
+    /**
+     * Counts the move sequences with the packed move generator
+     *
+     * @param depth number of moves in each sequence
+     * @return number of positions reached after depth moves
+     */
+    public long count(int depth) {
+        ensurePlies(depth);
+        return count(depth, 0);
+    }
+
+    /**
+     * Splits the count by the first move, which is how a wrong count is narrowed down to the move
+     * where the generator goes wrong
+     *
+     * @param depth number of moves in each sequence, at least 1
+     * @return the count below each legal first move, in generation order
+     */
+    public Map<ChessMove, Long> divide(int depth) {
+        if (depth < 1) {
+            throw new IllegalArgumentException("Depth must be at least 1");
+        }
+        ensurePlies(depth);
+        Map<ChessMove, Long> counts = new LinkedHashMap<>();
+        MoveList list = moves[0];
+        list.clear();
+        game.legalMoves(game.getTeamTurn(), list);
+        for (int i = 0; i < list.size(); i++) {
+            game.doMove(list.get(i));
+            counts.put(PackedMove.toChessMove(list.get(i)), count(depth - 1, 1));
+            game.undoMove();
+        }
+        return counts;
+    }
+
+    /**
+     * Counts the move sequences, remembering the count below every position in a table keyed by
+     * the position's Zobrist key so transpositions are only counted once
+     *
+     * @param depth number of moves in each sequence
+     * @param megabytes size of the table, it is allocated on the first call and kept afterwards
+     * @return number of positions reached after depth moves
+     */
+    public long countHashed(int depth, int megabytes) {
+        int entries = (int) Long.highestOneBit(Math.max(1L, Math.min(1L << 28, (long) megabytes * (1 << 20) / 16)));
+        if (table == null || table.length != entries * 2) {
+            table = new long[entries * 2];
+            tableMask = entries - 1;
+        }
+        ensurePlies(depth);
+        return hashed(depth, 0);
+    }
+
+    /**
+     * Counts the move sequences on every core, each first move is counted by its own fork-join task
+     * on a copy of the game
+     *
+     * @param depth number of moves in each sequence
+     * @return number of positions reached after depth moves
+     */
+    public long countParallel(int depth) {
+        if (depth < 2) {
+            return count(depth);
+        }
+        MoveList roots = new MoveList();
+        game.legalMoves(game.getTeamTurn(), roots);
+        List<ForkJoinTask<Long>> tasks = new ArrayList<>(roots.size());
+        for (int i = 0; i < roots.size(); i++) {
+            ChessGame child = game.copy();
+            child.doMove(roots.get(i));
+            tasks.add(ForkJoinPool.commonPool().submit(() -> new Perft(child).count(depth - 1)));
+        }
+        long nodes = 0;
+        for (ForkJoinTask<Long> task : tasks) {
+            nodes += task.join();
+        }
+        return nodes;
+    }
+
+    /**
+     * Counts the move sequences through the public ChessPosition and ChessMove API, validMoves for
+     * every piece followed by doMove, the way the client and server use the game
+     *
+     * @param depth number of moves in each sequence
+     * @return number of positions reached after depth moves
+     */
+    public long countWithCollections(int depth) {
+        if (depth == 0) {
+            return 1;
+        }
+        ChessBoard board = game.getBoard();
+        ChessGame.TeamColor turn = game.getTeamTurn();
+        List<ChessMove> legal = new ArrayList<>();
+        for (int row = 1; row <= 8; row++) {
+            for (int col = 1; col <= 8; col++) {
+                ChessPosition position = ChessPosition.of(row, col);
+                ChessPiece piece = board.getPiece(position);
+                if (piece != null && piece.getTeamColor() == turn) {
+                    legal.addAll(game.validMoves(position));
+                }
+            }
+        }
+        if (depth == 1) {
+            return legal.size();
+        }
+        long nodes = 0;
+        for (ChessMove move : legal) {
+            game.doMove(move);
+            nodes += countWithCollections(depth - 1);
+            game.undoMove();
+        }
+        return nodes;
+    }
+
+    private long count(int depth, int ply) {
+        if (depth == 0) {
+            return 1;
+        }
+        MoveList list = moves[ply];
+        list.clear();
+        game.legalMoves(game.getTeamTurn(), list);
+        if (depth == 1) {
+            return list.size();
+        }
+        long nodes = 0;
+        for (int i = 0; i < list.size(); i++) {
+            game.doMove(list.get(i));
+            nodes += count(depth - 1, ply + 1);
+            game.undoMove();
+        }
+        return nodes;
+    }
+
+    /**
+     * Each entry takes two longs: the key XOR the stored count, then the count with the depth in its
+     * low 8 bits. An entry written halfway by another count never matches, since the key check
+     * uses both halves.
+     */
+    private long hashed(int depth, int ply) {
+        if (depth <= 1) {
+            return count(depth, ply);
+        }
+        long key = game.getZobristKey();
+        int slot = (int) (key ^ (key >>> 32) ^ depth) & tableMask;
+        long data = table[slot * 2 + 1];
+        if ((data & 0xFF) == depth && (table[slot * 2] ^ data) == key) {
+            return data >>> 8;
+        }
+        MoveList list = moves[ply];
+        list.clear();
+        game.legalMoves(game.getTeamTurn(), list);
+        long nodes = 0;
+        for (int i = 0; i < list.size(); i++) {
+            game.doMove(list.get(i));
+            nodes += hashed(depth - 1, ply + 1);
+            game.undoMove();
+        }
+        data = (nodes << 8) | depth;
+        table[slot * 2] = key ^ data;
+        table[slot * 2 + 1] = data;
+        return nodes;
+    }
+
+    private void ensurePlies(int depth) {
+        if (moves.length < depth) {
+            MoveList[] grown = new MoveList[depth];
+            System.arraycopy(moves, 0, grown, 0, moves.length);
+            for (int ply = moves.length; ply < depth; ply++) {
+                grown[ply] = new MoveList();
+            }
+            moves = grown;
+        }
+    }
+
+    /**
+     * Runs a count and prints the nodes and the nodes per second. The position is given as FEN
+     * and defaults to the starting position.
+     * Usage: {@code Perft <depth> [count|divide|hash|parallel|collections] [fen]}
+     */
+    public static void main(String[] args) {
+        if (args.length < 1) {
+            System.out.println("Usage: Perft <depth> [count|divide|hash|parallel|collections] [fen]");
+            return;
+        }
+        int depth = Integer.parseInt(args[0]);
+        String mode = args.length > 1 ? args[1] : "count";
+        String fen = args.length > 2 ? String.join(" ", Arrays.copyOfRange(args, 2, args.length))
+                : Fen.STARTING_POSITION;
+        Perft perft = new Perft(Fen.parse(fen));
+
+        long start = System.nanoTime();
+        long nodes = switch (mode) {
+            case "count" -> perft.count(depth);
+            case "hash" -> perft.countHashed(depth, 64);
+            case "parallel" -> perft.countParallel(depth);
+            case "collections" -> perft.countWithCollections(depth);
+            case "divide" -> {
+                long total = 0;
+                for (Map.Entry<ChessMove, Long> entry : perft.divide(depth).entrySet()) {
+                    System.out.println(moveName(entry.getKey()) + ": " + entry.getValue());
+                    total += entry.getValue();
+                }
+                yield total;
+            }
+            default -> throw new IllegalArgumentException("Unknown mode " + mode);
+        };
+        long nanos = Math.max(1, System.nanoTime() - start);
+        System.out.printf("Nodes: %d%nTime: %d ms%nNodes/second: %d%n",
+                nodes, nanos / 1_000_000, nodes * 1_000_000_000L / nanos);
+    }
+
+    /**
+     * @return the move in the from-to form most perft tools print, such as "e2e4" or "e7e8q"
+     */
+    private static String moveName(ChessMove move) {
+        String name = Fen.formatPosition(move.getStartPosition()) + Fen.formatPosition(move.getEndPosition());
+        if (move.getPromotionPiece() != null) {
+            name += "kqbnrp".charAt(move.getPromotionPiece().ordinal());
+        }
+        return name;
+    }
+}
@@ -0,0 +1,211 @@
+package chess;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.BiConsumer;
+
+/**
+ * Reads games in Portable Game Notation, the text format chess databases export. Moves are
+ * written in standard algebraic notation (SAN), such as {@code e4}, {@code Nbd7}, {@code exd5},
+ * {@code O-O} or {@code e8=Q+}: the piece letter (none for pawns), enough of the start square to
+ * tell pieces apart, the target square and the promotion piece.
+ */
+public final class Pgn {
+    private static final String PIECE_LETTERS = "KQBNRP";
+
+    private Pgn() {
+    }
+
+    /**
+     * Finds the legal move a SAN string stands for
+     *
+     * @param game the position the move is played in
+     * @param san the move, check and annotation marks are ignored
+     * @return the packed move (see PackedMove)
+     * @throws IllegalArgumentException if the string does not name exactly one legal move
+     */
+    public static int parseMove(ChessGame game, String san) {
+        String text = san;
+        while (!text.isEmpty() && "+#!?".indexOf(text.charAt(text.length() - 1)) >= 0) {
+            text = text.substring(0, text.length() - 1);
+        }
+        MoveList legal = new MoveList();
+        game.legalMoves(game.getTeamTurn(), legal);
+        if (text.equals("O-O") || text.equals("0-0") || text.equals("O-O-O") || text.equals("0-0-0")) {
+            int column = text.length() == 3 ? 6 : 2;
+            for (int i = 0; i < legal.size(); i++) {
+                int move = legal.get(i);
+                if ((move & PackedMove.CASTLE) != 0 && (PackedMove.to(move) & 7) == column) {
+                    return move;
+                }
+            }
+            throw new IllegalArgumentException("Illegal move: " + san);
+        }
+
+        ChessPiece.PieceType type = ChessPiece.PieceType.PAWN;
+        int start = 0;
+        if (!text.isEmpty() && PIECE_LETTERS.indexOf(text.charAt(0)) >= 0) {
+            type = ChessPiece.PieceType.values()[PIECE_LETTERS.indexOf(text.charAt(0))];
+            start = 1;
+        }
+        ChessPiece.PieceType promotion = null;
+        int equals = text.indexOf('=');
+        if (equals >= 0 || (type == ChessPiece.PieceType.PAWN && !text.isEmpty()
+                && PIECE_LETTERS.indexOf(text.charAt(text.length() - 1)) >= 0)) {
+            int letter = PIECE_LETTERS.indexOf(text.charAt(text.length() - 1));
+            if (letter < 0) {
+                throw new IllegalArgumentException("Invalid promotion: " + san);
+            }
+            promotion = ChessPiece.PieceType.values()[letter];
+            text = text.substring(0, equals >= 0 ? equals : text.length() - 1);
+        }
+        if (text.length() - start < 2) {
+            throw new IllegalArgumentException("Invalid move: " + san);
+        }
+        ChessPosition target = Fen.parsePosition(text.substring(text.length() - 2));
+        int to = ChessBoard.squareIndex(target.getRow(), target.getColumn());
+        String hint = text.substring(start, text.length() - 2).replace("x", "").replace("-", "");
+
+        ChessBoard board = game.getBoard();
+        int found = PackedMove.NONE;
+        for (int i = 0; i < legal.size(); i++) {
+            int move = legal.get(i);
+            int from = PackedMove.from(move);
+            if (PackedMove.to(move) != to || board.getPiece(from).getPieceType() != type
+                    || PackedMove.promotion(move) != promotion || !matchesHint(from, hint)) {
+                continue;
+            }
+            if (found != PackedMove.NONE) {
+                throw new IllegalArgumentException("Ambiguous move: " + san);
+            }
+            found = move;
+        }
+        if (found == PackedMove.NONE) {
+            throw new IllegalArgumentException("Illegal move: " + san);
+        }
+        return found;
+    }
+
+    /**
+     * Reads every game of a PGN file. Tags other than FEN, comments, variations, move numbers and
+     * annotation glyphs are skipped.
+     *
+     * @param in the PGN text
+     * @param handler called once per game with a new game set to its starting position, from the
+     * FEN tag if there is one, and its moves in SAN. The game is null if the FEN tag cannot be
+     * read, so the handler can skip it.
+     * @throws IOException if the text cannot be read
+     */
+    public static void readGames(Reader in, BiConsumer<ChessGame, List<String>> handler) throws IOException {
+        BufferedReader reader = in instanceof BufferedReader buffered ? buffered : new BufferedReader(in);
+        List<String> moves = new ArrayList<>();
+        String fen = null;
+        StringBuilder token = new StringBuilder();
+        int variations = 0;
+        int c;
+        while ((c = reader.read()) != -1) {
+            if (c == '[' && variations == 0) {
+                if (!moves.isEmpty()) {
+                    handler.accept(startingGame(fen), moves);
+                    moves = new ArrayList<>();
+                    fen = null;
+                }
+                String tag = readTag(reader);
+                if (tag.startsWith("FEN ")) {
+                    fen = tag.substring(4).trim().replace("\"", "");
+                }
+            } else if (c == '{') {
+                skipPast(reader, '}');
+            } else if (c == ';') {
+                skipPast(reader, '\n');
+            } else if (c == '(') {
+                variations++;
+            } else if (c == ')') {
+                variations = Math.max(0, variations - 1);
+            } else if (Character.isWhitespace(c)) {
+                if (variations == 0 && addToken(token.toString(), moves)) {
+                    handler.accept(startingGame(fen), moves);
+                    moves = new ArrayList<>();
+                    fen = null;
+                }
+                token.setLength(0);
+            } else if (variations == 0) {
+                token.append((char) c);
+            }
+        }
+        addToken(token.toString(), moves);
+        if (!moves.isEmpty()) {
+            handler.accept(startingGame(fen), moves);
+        }
+    }
+
+    /**
+     * @return true if the token is a game result, which ends the game
+     */
+    private static boolean addToken(String token, List<String> moves) {
+        if (token.equals("1-0") || token.equals("0-1") || token.equals("1/2-1/2") || token.equals("*")) {
+            return true;
+        }
+        int start = 0;
+        while (start < token.length() && (Character.isDigit(token.charAt(start)) || token.charAt(start) == '.')) {
+            start++;
+        }
+        String move = token.substring(start);
+        if (!move.isEmpty() && !move.startsWith("$")) {
+            moves.add(move);
+        }
+        return false;
+    }
+
+    private static boolean matchesHint(int from, String hint) {
+        for (char c : hint.toCharArray()) {
+            if (c >= 'a' && c <= 'h' && (from & 7) != c - 'a') {
+                return false;
+            }
+            if (c >= '1' && c <= '8' && (from >>> 3) != c - '1') {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return the game at the position of the FEN tag, or null if the tag is not a valid FEN
+     */
+    private static ChessGame startingGame(String fen) {
+        if (fen == null) {
+            return Fen.parse(Fen.STARTING_POSITION);
+        }
+        try {
+            return Fen.parse(fen);
+        } catch (IllegalArgumentException ex) {
+            return null;
+        }
+    }
+
+    /**
+     * @return the tag between the brackets, such as {@code Event "Club match"}
+     */
+    private static String readTag(BufferedReader reader) throws IOException {
+        StringBuilder tag = new StringBuilder();
+        boolean quoted = false;
+        int c;
+        while ((c = reader.read()) != -1 && (quoted || c != ']')) {
+            if (c == '"') {
+                quoted = !quoted;
+            }
+            tag.append((char) c);
+        }
+        return tag.toString().trim();
+    }
+
+    private static void skipPast(BufferedReader reader, char end) throws IOException {
+        int c;
+        while ((c = reader.read()) != -1 && c != end) {
+            // skipped
+        }
+    }
+}
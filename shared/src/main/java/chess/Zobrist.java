@@ -0,0 +1,74 @@
+package chess;
+
+/**
+ * Random 64-bit numbers used to build Zobrist keys. A position's key is the XOR of one number per
+ * piece on its square plus numbers for the side to move, the castling rights and the column of a
+ * pawn that can be taken en passant, so placing or removing a piece only XORs a single number in
+ * or out. The numbers come from a fixed seed, so keys are the same in every process and can be
+ * stored.
+ */
+public final class Zobrist {
+    private static final long[][] PIECE_SQUARE = new long[12][64];
+    private static final long BLACK_TO_MOVE;
+    private static final long[] CASTLING = new long[16];
+    private static final long[] EN_PASSANT_FILE = new long[8];
+
+    static {
+        long[] seed = {0x2F0B3A7C5D1E9F48L};
+        for (long[] squares : PIECE_SQUARE) {
+            for (int square = 0; square < 64; square++) {
+                squares[square] = next(seed);
+            }
+        }
+        BLACK_TO_MOVE = next(seed);
+        for (int rights = 1; rights < CASTLING.length; rights++) {
+            CASTLING[rights] = next(seed);
+        }
+        for (int file = 0; file < EN_PASSANT_FILE.length; file++) {
+            EN_PASSANT_FILE[file] = next(seed);
+        }
+    }
+
+    private Zobrist() {
+    }
+
+    /**
+     * @param piece the piece
+     * @param square index of the square it stands on
+     * @return the number XORed into the key while that piece stands on that square
+     */
+    public static long piece(ChessPiece piece, int square) {
+        return PIECE_SQUARE[ChessBoard.pieceIndex(piece)][square];
+    }
+
+    /**
+     * @param turn the team to move
+     * @return the number XORed into the key for the side to move
+     */
+    public static long side(ChessGame.TeamColor turn) {
+        return turn == ChessGame.TeamColor.BLACK ? BLACK_TO_MOVE : 0L;
+    }
+
+    /**
+     * @param rights the castling rights still held, see ChessGame.getCastlingRights
+     * @return the number XORed into the key for that combination of rights, 0 when none are left
+     */
+    public static long castling(int rights) {
+        return CASTLING[rights];
+    }
+
+    /**
+     * @param square the square a pawn skipped with its two row move, when it can be taken en passant
+     * @return the number XORed into the key for that square's column
+     */
+    public static long enPassant(int square) {
+        return EN_PASSANT_FILE[square & 7];
+    }
+
+    private static long next(long[] seed) {
+        long z = (seed[0] += 0x9E3779B97F4A7C15L);
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+}
@@ -0,0 +1,194 @@
+package chess.engine;
+
+import chess.ChessBoard;
+import chess.ChessGame;
+import chess.ChessPiece;
+import chess.PackedMove;
+
+/**
+ * Scores a position in centipawns from the point of view of the team to move, positive when that
+ * team is ahead. The score is material plus piece-square bonuses plus the pawn structure, kept as
+ * a middlegame and an endgame score that are blended by the game phase (tapered evaluation): with
+ * all pieces on the board the middlegame score counts, and it fades into the endgame score as
+ * pieces come off.
+ * <p>
+ * The static evaluate scans the board. A search instead plays its moves through doMove and
+ * undoMove, which update the two scores and the phase by the few squares a move changes and keep
+ * one set per ply, so evaluating a leaf costs a multiplication and taking a move back costs
+ * nothing. The pawn structure terms are cached by the board's pawn key, since most moves leave
+ * the pawns alone, and finished scores by the position's key, since the search keeps reaching the
+ * same positions.
+ */
+public final class Evaluator {
+    /**
+     * Value of each piece type, indexed by PieceType ordinal
+     */
+    static final int[] PIECE_VALUES = {0, 900, 330, 320, 500, 100};
+
+    private static final int PAWN_CACHE_ENTRIES = 1 << 14;
+    private static final int EVALUATION_CACHE_ENTRIES = 1 << 16;
+
+    private final ScoreCache pawnCache = new ScoreCache(PAWN_CACHE_ENTRIES);
+    private final ScoreCache evaluationCache = new ScoreCache(EVALUATION_CACHE_ENTRIES);
+    private final int[] middlegame = new int[Searcher.MAX_PLY + 1];
+    private final int[] endgame = new int[Searcher.MAX_PLY + 1];
+    private final int[] phase = new int[Searcher.MAX_PLY + 1];
+    private int ply;
+    private ChessGame game;
+
+    /**
+     * Scores a position from scratch
+     *
+     * @param game the position to score
+     * @return the score for the team to move
+     */
+    public static int evaluate(ChessGame game) {
+        ChessBoard board = game.getBoard();
+        int middlegameScore = 0;
+        int endgameScore = 0;
+        int gamePhase = 0;
+        for (ChessGame.TeamColor color : ChessGame.TeamColor.values()) {
+            for (ChessPiece.PieceType type : ChessPiece.PieceType.values()) {
+                int index = color.ordinal() * 6 + type.ordinal();
+                long pieces = board.getPieces(color, type);
+                gamePhase += Long.bitCount(pieces) * PieceSquareTables.PHASE_WEIGHTS[type.ordinal()];
+                for (; pieces != 0; pieces &= pieces - 1) {
+                    int square = Long.numberOfTrailingZeros(pieces);
+                    middlegameScore += PieceSquareTables.MIDDLEGAME[index][square];
+                    endgameScore += PieceSquareTables.ENDGAME[index][square];
+                }
+            }
+        }
+        int pawns = PawnStructure.evaluate(board.getPieces(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.PAWN),
+                board.getPieces(ChessGame.TeamColor.BLACK, ChessPiece.PieceType.PAWN));
+        return taper(middlegameScore + PawnStructure.middlegame(pawns), endgameScore + PawnStructure.endgame(pawns),
+                gamePhase, game.getTeamTurn());
+    }
+
+    /**
+     * Starts following a game, the scores are computed once from its board
+     *
+     * @param game the game the search plays its moves on
+     */
+    public void reset(ChessGame game) {
+        this.game = game;
+        ply = 0;
+        middlegame[0] = 0;
+        endgame[0] = 0;
+        phase[0] = 0;
+        ChessBoard board = game.getBoard();
+        for (int square = 0; square < 64; square++) {
+            ChessPiece piece = board.getPiece(square);
+            if (piece != null) {
+                add(piece, square);
+            }
+        }
+    }
+
+    /**
+     * @return the score of the game's current position for the team to move
+     */
+    public int evaluate() {
+        long key = game.getZobristKey();
+        int score = evaluationCache.probe(key);
+        if (score != ScoreCache.MISS) {
+            return score;
+        }
+        int pawns = pawnStructure();
+        score = taper(middlegame[ply] + PawnStructure.middlegame(pawns), endgame[ply] + PawnStructure.endgame(pawns),
+                phase[ply], game.getTeamTurn());
+        evaluationCache.store(key, score);
+        return score;
+    }
+
+    /**
+     * Plays a move on the game, updating the scores by the squares it changes. The same castling
+     * and en passant rules as ChessGame.doMove apply.
+     *
+     * @param move a packed legal move
+     */
+    public void doMove(int move) {
+        ChessBoard board = game.getBoard();
+        int from = PackedMove.from(move);
+        int to = PackedMove.to(move);
+        ChessPiece moved = board.getPiece(from);
+        ChessPiece.PieceType type = moved.getPieceType();
+        ChessPiece.PieceType promotion = PackedMove.promotion(move);
+
+        middlegame[ply + 1] = middlegame[ply];
+        endgame[ply + 1] = endgame[ply];
+        phase[ply + 1] = phase[ply];
+        ply++;
+        remove(moved, from);
+        ChessPiece captured = board.getPiece(to);
+        if (captured != null) {
+            remove(captured, to);
+        } else if (type == ChessPiece.PieceType.PAWN && (from & 7) != (to & 7)) {
+            int victim = to + (moved.getTeamColor() == ChessGame.TeamColor.WHITE ? -8 : 8);
+            remove(board.getPiece(victim), victim);
+        }
+        add(promotion == null ? moved : ChessPiece.of(moved.getTeamColor(), promotion), to);
+        if (type == ChessPiece.PieceType.KING && Math.abs(to - from) == 2) {
+            int rookFrom = to > from ? from + 3 : from - 4;
+            ChessPiece rook = board.getPiece(rookFrom);
+            remove(rook, rookFrom);
+            add(rook, (from + to) / 2);
+        }
+        game.doMove(move);
+    }
+
+    /**
+     * Passes the turn on the game, see ChessGame.doNullMove. The scores do not change.
+     */
+    public void doNullMove() {
+        middlegame[ply + 1] = middlegame[ply];
+        endgame[ply + 1] = endgame[ply];
+        phase[ply + 1] = phase[ply];
+        ply++;
+        game.doNullMove();
+    }
+
+    /**
+     * Takes back the last move played with doMove or doNullMove
+     */
+    public void undoMove() {
+        game.undoMove();
+        ply--;
+    }
+
+    private int pawnStructure() {
+        ChessBoard board = game.getBoard();
+        long key = board.getPawnZobristKey();
+        int pawns = pawnCache.probe(key);
+        if (pawns == ScoreCache.MISS) {
+            pawns = PawnStructure.evaluate(board.getPieces(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.PAWN),
+                    board.getPieces(ChessGame.TeamColor.BLACK, ChessPiece.PieceType.PAWN));
+            pawnCache.store(key, pawns);
+        }
+        return pawns;
+    }
+
+    private void add(ChessPiece piece, int square) {
+        int index = PieceSquareTables.index(piece);
+        middlegame[ply] += PieceSquareTables.MIDDLEGAME[index][square];
+        endgame[ply] += PieceSquareTables.ENDGAME[index][square];
+        phase[ply] += PieceSquareTables.PHASE_WEIGHTS[piece.getPieceType().ordinal()];
+    }
+
+    private void remove(ChessPiece piece, int square) {
+        int index = PieceSquareTables.index(piece);
+        middlegame[ply] -= PieceSquareTables.MIDDLEGAME[index][square];
+        endgame[ply] -= PieceSquareTables.ENDGAME[index][square];
+        phase[ply] -= PieceSquareTables.PHASE_WEIGHTS[piece.getPieceType().ordinal()];
+    }
+
+    /**
+     * Blends the white minus black scores by the phase, which can pass TOTAL_PHASE after promotions
+     */
+    private static int taper(int middlegameScore, int endgameScore, int gamePhase, ChessGame.TeamColor turn) {
+        int weight = Math.min(gamePhase, PieceSquareTables.TOTAL_PHASE);
+        int score = (middlegameScore * weight + endgameScore * (PieceSquareTables.TOTAL_PHASE - weight))
+                / PieceSquareTables.TOTAL_PHASE;
+        return turn == ChessGame.TeamColor.WHITE ? score : -score;
+    }
+}
@@ -0,0 +1,71 @@
+package chess.engine;
+
+import chess.ChessPiece;
+import chess.PackedMove;
+
+import java.util.Arrays;
+
+/**
+ * What the search learned about quiet moves that cut it off: two killer moves per ply, tried right
+ * after the captures at the same ply of other branches, and a history score per piece and target
+ * square that orders the remaining quiet moves.
+ */
+final class MoveHistory {
+    /**
+     * History scores are halved once one passes this, so recent cutoffs outweigh old ones
+     */
+    private static final int HISTORY_LIMIT = 1 << 20;
+
+    private final int[][] killers = new int[Searcher.MAX_PLY][2];
+    private final int[] history = new int[12 * 64];
+
+    /**
+     * @return the killer move in the slot (0 is the most recent), or PackedMove.NONE
+     */
+    int killer(int ply, int slot) {
+        return killers[ply][slot];
+    }
+
+    /**
+     * @return how often moves of this piece to this square cut the search off, weighted by depth
+     */
+    int score(ChessPiece piece, int to) {
+        return history[PieceSquareTables.index(piece) * 64 + to];
+    }
+
+    /**
+     * Remembers a quiet move that caused a beta cutoff
+     *
+     * @param piece the piece that moved
+     * @param move the packed move
+     * @param depth remaining depth at the cutoff, deeper cutoffs count for more
+     */
+    void cutoff(int ply, ChessPiece piece, int move, int depth) {
+        int plain = PackedMove.withoutFlags(move);
+        if (killers[ply][0] != plain) {
+            killers[ply][1] = killers[ply][0];
+            killers[ply][0] = plain;
+        }
+        int index = PieceSquareTables.index(piece) * 64 + PackedMove.to(move);
+        history[index] += depth * depth;
+        if (history[index] > HISTORY_LIMIT) {
+            age();
+        }
+    }
+
+    /**
+     * Forgets the killers, which belong to the positions of the last search, and halves the history
+     */
+    void newSearch() {
+        for (int[] plyKillers : killers) {
+            Arrays.fill(plyKillers, PackedMove.NONE);
+        }
+        age();
+    }
+
+    private void age() {
+        for (int i = 0; i < history.length; i++) {
+            history[i] >>= 1;
+        }
+    }
+}
@@ -0,0 +1,334 @@
+package chess.engine;
+
+import chess.ChessBoard;
+import chess.ChessGame;
+import chess.ChessPiece;
+import chess.MoveList;
+import chess.PackedMove;
+
+/**
+ * Hands out the legal moves of a position one at a time, best first, generating them in stages
+ * so a cutoff on an early move never pays for generating the rest:
+ * <ol>
+ *     <li>the move the transposition table remembers for the position</li>
+ *     <li>captures and promotions that do not lose material, most valuable victim first and least
+ *     valuable attacker second (MVV-LVA)</li>
+ *     <li>the two killer moves of the ply</li>
+ *     <li>the other quiet moves, by history score</li>
+ *     <li>captures the static exchange evaluation (SEE) says lose material</li>
+ * </ol>
+ * In quiescence mode only the captures that do not lose material are returned, unless the team to
+ * move is in check, then every move is. The search keeps one picker per ply and reuses it.
+ */
+final class MovePicker {
+    private static final int TABLE_MOVE = 0;
+    private static final int GENERATE_CAPTURES = 1;
+    private static final int GOOD_CAPTURES = 2;
+    private static final int FIRST_KILLER = 3;
+    private static final int SECOND_KILLER = 4;
+    private static final int GENERATE_QUIETS = 5;
+    private static final int QUIETS = 6;
+    private static final int BAD_CAPTURES = 7;
+    private static final int DONE = 8;
+
+    /**
+     * Added to the score of captures that lose material, the other captures all score 0 or more
+     */
+    private static final int BAD_CAPTURE = -1_000_000;
+    /**
+     * Piece values for the exchange evaluation, indexed by PieceType ordinal. The king is worth
+     * more than everything else together, so capturing with it into a defended square never pays.
+     */
+    private static final int[] EXCHANGE_VALUES = {20_000, 900, 330, 320, 500, 100};
+    private static final ChessPiece.PieceType[] CHEAPEST_FIRST = {ChessPiece.PieceType.PAWN,
+            ChessPiece.PieceType.KNIGHT, ChessPiece.PieceType.BISHOP, ChessPiece.PieceType.ROOK,
+            ChessPiece.PieceType.QUEEN, ChessPiece.PieceType.KING};
+
+    private final MoveHistory history;
+    private final MoveList captures = new MoveList(64);
+    private final MoveList quiets = new MoveList(256);
+    private final MoveList pieceMoves = new MoveList(32);
+    private final int[] captureScores = new int[256];
+    private final int[] quietScores = new int[256];
+    private final int[] gains = new int[32];
+    private ChessGame game;
+    private ChessGame.TeamColor turn;
+    private int ply;
+    private int stage;
+    private int index;
+    private int firstBadCapture;
+    private boolean quiescence;
+    private int tableMove;
+    private int firstKiller;
+    private int secondKiller;
+
+    MovePicker(MoveHistory history) {
+        this.history = history;
+    }
+
+    /**
+     * Starts picking the moves of the game's current position
+     *
+     * @param tableMove the transposition table's move for the position, or PackedMove.NONE
+     * @param quiescence true to pick only captures that do not lose material, when not in check
+     */
+    void reset(ChessGame game, int ply, int tableMove, boolean quiescence) {
+        this.game = game;
+        this.ply = ply;
+        this.turn = game.getTeamTurn();
+        this.quiescence = quiescence && !game.isInCheck(turn);
+        this.tableMove = this.quiescence ? PackedMove.NONE : legalVersion(tableMove);
+        firstKiller = PackedMove.NONE;
+        secondKiller = PackedMove.NONE;
+        stage = this.tableMove == PackedMove.NONE ? GENERATE_CAPTURES : TABLE_MOVE;
+    }
+
+    /**
+     * @return the next move to search, or PackedMove.NONE when there are no more
+     */
+    int next() {
+        while (true) {
+            switch (stage) {
+                case TABLE_MOVE -> {
+                    stage = GENERATE_CAPTURES;
+                    return tableMove;
+                }
+                case GENERATE_CAPTURES -> {
+                    captures.clear();
+                    game.legalCaptures(turn, captures);
+                    scoreCaptures();
+                    index = 0;
+                    stage = GOOD_CAPTURES;
+                }
+                case GOOD_CAPTURES -> {
+                    if (index < captures.size() && best(captures, captureScores, index) >= 0) {
+                        int move = captures.get(index++);
+                        if (!isTableMove(move)) {
+                            return move;
+                        }
+                    } else {
+                        firstBadCapture = index;
+                        stage = quiescence ? DONE : FIRST_KILLER;
+                    }
+                }
+                case FIRST_KILLER -> {
+                    stage = SECOND_KILLER;
+                    firstKiller = quietVersion(history.killer(ply, 0));
+                    if (firstKiller != PackedMove.NONE) {
+                        return firstKiller;
+                    }
+                }
+                case SECOND_KILLER -> {
+                    stage = GENERATE_QUIETS;
+                    secondKiller = quietVersion(history.killer(ply, 1));
+                    if (secondKiller != PackedMove.NONE) {
+                        return secondKiller;
+                    }
+                }
+                case GENERATE_QUIETS -> {
+                    quiets.clear();
+                    game.legalQuietMoves(turn, quiets);
+                    scoreQuiets();
+                    stage = QUIETS;
+                    index = 0;
+                }
+                case QUIETS -> {
+                    if (index < quiets.size()) {
+                        best(quiets, quietScores, index);
+                        int move = quiets.get(index++);
+                        if (!isTableMove(move) && move != firstKiller && move != secondKiller) {
+                            return move;
+                        }
+                    } else {
+                        stage = BAD_CAPTURES;
+                        index = firstBadCapture;
+                    }
+                }
+                case BAD_CAPTURES -> {
+                    if (index < captures.size()) {
+                        best(captures, captureScores, index);
+                        int move = captures.get(index++);
+                        if (!isTableMove(move)) {
+                            return move;
+                        }
+                    } else {
+                        stage = DONE;
+                    }
+                }
+                default -> {
+                    return PackedMove.NONE;
+                }
+            }
+        }
+    }
+
+    /**
+     * @return true if the last move handed out was an ordinary quiet move, after the table move,
+     * the good captures and the killers, which is where the search reduces
+     */
+    boolean isLateMove() {
+        return stage == QUIETS;
+    }
+
+    /**
+     * Works out what a capture wins once both sides have made every capture on its target square
+     * that pays for them, always capturing with their least valuable piece first. Sliding pieces
+     * behind the capturers join in as the pieces in front of them leave.
+     *
+     * @param move a legal capture or promotion
+     * @return material won in centipawns, negative if the capture loses material
+     */
+    int staticExchange(int move) {
+        ChessBoard board = game.getBoard();
+        int from = PackedMove.from(move);
+        int to = PackedMove.to(move);
+        ChessPiece attacker = board.getPiece(from);
+        ChessPiece victim = board.getPiece(to);
+        long occupied = board.getOccupancy() & ~(1L << from);
+        if (victim == null && attacker.getPieceType() == ChessPiece.PieceType.PAWN && (from & 7) != (to & 7)) {
+            occupied &= ~(1L << (to + (attacker.getTeamColor() == ChessGame.TeamColor.WHITE ? -8 : 8)));
+            gains[0] = EXCHANGE_VALUES[ChessPiece.PieceType.PAWN.ordinal()];
+        } else {
+            gains[0] = victim == null ? 0 : EXCHANGE_VALUES[victim.getPieceType().ordinal()];
+        }
+        int onSquare = EXCHANGE_VALUES[attacker.getPieceType().ordinal()];
+        ChessGame.TeamColor side = opponent(attacker.getTeamColor());
+        int depth = 0;
+        while (depth < gains.length - 1) {
+            long attackers = board.attackers(to, side, occupied) & occupied;
+            if (attackers == 0) {
+                break;
+            }
+            ChessPiece.PieceType cheapest = null;
+            long pieces = 0L;
+            for (ChessPiece.PieceType type : CHEAPEST_FIRST) {
+                pieces = attackers & board.getPieces(side, type);
+                if (pieces != 0) {
+                    cheapest = type;
+                    break;
+                }
+            }
+            depth++;
+            gains[depth] = onSquare - gains[depth - 1];
+            if (Math.max(-gains[depth - 1], gains[depth]) < 0) {
+                break;
+            }
+            occupied &= ~(pieces & -pieces);
+            onSquare = EXCHANGE_VALUES[cheapest.ordinal()];
+            side = opponent(side);
+        }
+        for (; depth > 0; depth--) {
+            gains[depth - 1] = -Math.max(-gains[depth - 1], gains[depth]);
+        }
+        return gains[0];
+    }
+
+    /**
+     * Promotions count as winning the promoted piece. A capture by a piece worth no more than its
+     * victim cannot lose material, so the exchange is only worked out for the others.
+     */
+    private void scoreCaptures() {
+        ChessBoard board = game.getBoard();
+        for (int i = 0; i < captures.size(); i++) {
+            int move = captures.get(i);
+            ChessPiece attacker = board.getPiece(PackedMove.from(move));
+            ChessPiece victim = board.getPiece(PackedMove.to(move));
+            int attackerValue = Evaluator.PIECE_VALUES[attacker.getPieceType().ordinal()];
+            int victimValue = victim == null ? (PackedMove.isCapture(move) ? Evaluator.PIECE_VALUES[ChessPiece.PieceType.PAWN.ordinal()] : 0)
+                    : Evaluator.PIECE_VALUES[victim.getPieceType().ordinal()];
+            ChessPiece.PieceType promotion = PackedMove.promotion(move);
+            if (promotion != null) {
+                victimValue += Evaluator.PIECE_VALUES[promotion.ordinal()];
+            }
+            int score = victimValue * 8 - attackerValue / 100;
+            if (promotion == null && attackerValue > victimValue && staticExchange(move) < 0) {
+                score += BAD_CAPTURE;
+            }
+            captureScores[i] = score;
+        }
+    }
+
+    private void scoreQuiets() {
+        ChessBoard board = game.getBoard();
+        for (int i = 0; i < quiets.size(); i++) {
+            int move = quiets.get(i);
+            quietScores[i] = history.score(board.getPiece(PackedMove.from(move)), PackedMove.to(move));
+        }
+    }
+
+    /**
+     * Swaps the best scored move from index onwards to index, the list is never sorted in full
+     *
+     * @return the score of that move
+     */
+    private static int best(MoveList list, int[] scores, int index) {
+        int best = index;
+        for (int i = index + 1; i < list.size(); i++) {
+            if (scores[i] > scores[best]) {
+                best = i;
+            }
+        }
+        if (best != index) {
+            int move = list.get(best);
+            list.set(best, list.get(index));
+            list.set(index, move);
+            int score = scores[best];
+            scores[best] = scores[index];
+            scores[index] = score;
+        }
+        return scores[index];
+    }
+
+    private boolean isTableMove(int move) {
+        return tableMove != PackedMove.NONE && PackedMove.withoutFlags(move) == PackedMove.withoutFlags(tableMove);
+    }
+
+    /**
+     * Moves from the transposition table may come from another position with a colliding key and
+     * killers from another branch, so they are looked up among the legal moves of their piece
+     *
+     * @return the generated move with its flags, or PackedMove.NONE if it is not legal here
+     */
+    private int legalVersion(int move) {
+        if (move == PackedMove.NONE) {
+            return PackedMove.NONE;
+        }
+        int from = PackedMove.from(move);
+        ChessPiece piece = game.getBoard().getPiece(from);
+        if (piece == null || piece.getTeamColor() != turn) {
+            return PackedMove.NONE;
+        }
+        pieceMoves.clear();
+        game.validMoves(from, pieceMoves);
+        int wanted = PackedMove.withoutFlags(move);
+        for (int i = 0; i < pieceMoves.size(); i++) {
+            if (PackedMove.withoutFlags(pieceMoves.get(i)) == wanted) {
+                return pieceMoves.get(i);
+            }
+        }
+        return PackedMove.NONE;
+    }
+
+    /**
+     * @return the killer as a legal quiet move of this position, or PackedMove.NONE if it is not one
+     * or is the table move, which was already tried
+     */
+    private int quietVersion(int killer) {
+        int move = legalVersion(killer);
+        if (move == PackedMove.NONE || isTableMove(move) || isCapture(move)) {
+            return PackedMove.NONE;
+        }
+        return move;
+    }
+
+    /**
+     * @return true for the moves legalCaptures generates: captures, en passant and promotions
+     */
+    static boolean isCapture(int move) {
+        return PackedMove.isCapture(move) || PackedMove.promotion(move) != null;
+    }
+
+    private static ChessGame.TeamColor opponent(ChessGame.TeamColor color) {
+        return color == ChessGame.TeamColor.WHITE ? ChessGame.TeamColor.BLACK : ChessGame.TeamColor.WHITE;
+    }
+}
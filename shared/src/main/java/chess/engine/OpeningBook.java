@@ -0,0 +1,148 @@
+package chess.engine;
+
+import chess.ChessGame;
+import chess.ChessMove;
+import chess.MoveList;
+import chess.PackedMove;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.random.RandomGenerator;
+
+/**
+ * Known good moves for opening positions, read from a book file written by OpeningBookBuilder.
+ * <p>
+ * The file follows the Polyglot layout: 16 byte big endian entries of an 8 byte position key, a 2
+ * byte move, a 2 byte weight and 4 unused bytes, sorted by key as an unsigned number. Keys are the
+ * positions' Zobrist keys and moves are packed moves without their flags (see PackedMove), so
+ * books from other programs cannot be read.
+ * <p>
+ * The file is memory mapped rather than read, and a lookup binary searches the mapped pages, so a
+ * book costs no heap, opening one is instant, and every process that opens the same file shares
+ * one copy of it in the page cache. Lookups only read the mapping and can run on any number of
+ * threads at once.
+ */
+public final class OpeningBook {
+    /**
+     * Size of one entry in bytes
+     */
+    public static final int ENTRY_BYTES = 16;
+
+    private final MappedByteBuffer entries;
+    private final int size;
+
+    private OpeningBook(MappedByteBuffer entries) {
+        this.entries = entries;
+        this.size = entries.capacity() / ENTRY_BYTES;
+    }
+
+    /**
+     * A book move and how often it was played relative to the others
+     */
+    public record BookMove(ChessMove move, int weight) {
+    }
+
+    /**
+     * Maps a book file into memory, the file must not change while the book is in use
+     *
+     * @param file the book file
+     * @return the book
+     * @throws IOException if the file cannot be read
+     * @throws IllegalArgumentException if the file is not a whole number of entries or is over 2GB
+     */
+    public static OpeningBook open(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long length = channel.size();
+            if (length % ENTRY_BYTES != 0 || length > Integer.MAX_VALUE) {
+                throw new IllegalArgumentException("Not an opening book: " + file);
+            }
+            return new OpeningBook(channel.map(FileChannel.MapMode.READ_ONLY, 0, length));
+        }
+    }
+
+    /**
+     * @return the number of entries in the book
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Finds the book moves of the game's current position. Entries whose move is not legal here,
+     * which happens when another position shares the key, are left out.
+     *
+     * @param game the position to look up
+     * @return the book moves, most played first, or an empty list if the position is not in the book
+     */
+    public List<BookMove> lookup(ChessGame game) {
+        long key = game.getZobristKey();
+        List<BookMove> found = new ArrayList<>();
+        int index = firstEntry(key);
+        if (index == size) {
+            return found;
+        }
+        MoveList legal = new MoveList();
+        game.legalMoves(game.getTeamTurn(), legal);
+        for (; index < size && entries.getLong(index * ENTRY_BYTES) == key; index++) {
+            int offset = index * ENTRY_BYTES;
+            int move = Short.toUnsignedInt(entries.getShort(offset + 8));
+            int weight = Short.toUnsignedInt(entries.getShort(offset + 10));
+            for (int i = 0; i < legal.size(); i++) {
+                if (PackedMove.withoutFlags(legal.get(i)) == move) {
+                    found.add(new BookMove(PackedMove.toChessMove(legal.get(i)), weight));
+                    break;
+                }
+            }
+        }
+        found.sort((a, b) -> Integer.compare(b.weight(), a.weight()));
+        return found;
+    }
+
+    /**
+     * Picks one of the position's book moves at random, more played moves more often
+     *
+     * @param game the position to look up
+     * @param random the source of randomness
+     * @return the move, or null if the position is not in the book
+     */
+    public ChessMove pick(ChessGame game, RandomGenerator random) {
+        List<BookMove> moves = lookup(game);
+        int total = 0;
+        for (BookMove move : moves) {
+            total += move.weight();
+        }
+        if (total == 0) {
+            return moves.isEmpty() ? null : moves.get(0).move();
+        }
+        int choice = random.nextInt(total);
+        for (BookMove move : moves) {
+            choice -= move.weight();
+            if (choice < 0) {
+                return move.move();
+            }
+        }
+        return moves.get(moves.size() - 1).move();
+    }
+
+    /**
+     * @return the index of the first entry with the key, or size if there is none
+     */
+    private int firstEntry(long key) {
+        int low = 0;
+        int high = size;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (Long.compareUnsigned(entries.getLong(middle * ENTRY_BYTES), key) < 0) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low < size && entries.getLong(low * ENTRY_BYTES) == key ? low : size;
+    }
+}
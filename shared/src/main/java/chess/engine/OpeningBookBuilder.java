@@ -0,0 +1,202 @@
+package chess.engine;
+
+import chess.ChessGame;
+import chess.PackedMove;
+import chess.Pgn;
+
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Builds an opening book file from played games. Every position in the first plies of a game is
+ * counted together with the move played from it, and the file lists each (position, move) pair
+ * once with a weight that grows with how often it was played. See OpeningBook for the format.
+ */
+public final class OpeningBookBuilder {
+    /**
+     * Plies of each game that go into the book by default
+     */
+    public static final int DEFAULT_MAX_PLY = 24;
+
+    private static final int MAX_WEIGHT = 0xFFFF;
+
+    private final int maxPly;
+    private final Map<Long, Map<Integer, Integer>> counts = new HashMap<>();
+    private int games;
+    private int skippedGames;
+
+    public OpeningBookBuilder() {
+        this(DEFAULT_MAX_PLY);
+    }
+
+    /**
+     * @param maxPly how many plies of each game go into the book
+     */
+    public OpeningBookBuilder(int maxPly) {
+        if (maxPly < 1) {
+            throw new IllegalArgumentException("The book needs at least one ply per game");
+        }
+        this.maxPly = maxPly;
+    }
+
+    /**
+     * Counts the first moves of a game
+     *
+     * @param game the starting position, the moves are played on it
+     * @param moves the packed legal moves of the game in order
+     */
+    public void addMoves(ChessGame game, int[] moves) {
+        for (int ply = 0; ply < moves.length && ply < maxPly; ply++) {
+            count(game.getZobristKey(), moves[ply]);
+            game.doMove(moves[ply]);
+        }
+        games++;
+    }
+
+    /**
+     * Counts the first moves of every game in a PGN file. A game with a move that is not legal in
+     * its position is counted up to that move and reported by skippedGames, as is a game whose
+     * FEN tag cannot be read, none of whose moves are counted.
+     *
+     * @param in the PGN text
+     * @throws IOException if the text cannot be read
+     */
+    public void addPgn(Reader in) throws IOException {
+        Pgn.readGames(in, this::addSanMoves);
+    }
+
+    /**
+     * @return the number of games counted
+     */
+    public int games() {
+        return games;
+    }
+
+    /**
+     * @return the number of PGN games cut short by a move that could not be read
+     */
+    public int skippedGames() {
+        return skippedGames;
+    }
+
+    /**
+     * @return the number of distinct (position, move) entries the book will hold
+     */
+    public int entries() {
+        int entries = 0;
+        for (Map<Integer, Integer> moves : counts.values()) {
+            entries += moves.size();
+        }
+        return entries;
+    }
+
+    /**
+     * Writes the book, sorted by key so OpeningBook can binary search it
+     *
+     * @param file the book file, replaced if it exists
+     * @throws IOException if the file cannot be written
+     */
+    public void write(Path file) throws IOException {
+        long[] keys = new long[counts.size()];
+        int i = 0;
+        for (long key : counts.keySet()) {
+            keys[i++] = key;
+        }
+        Arrays.sort(keys);
+        sortUnsigned(keys);
+        int highest = 1;
+        for (Map<Integer, Integer> moves : counts.values()) {
+            for (int count : moves.values()) {
+                highest = Math.max(highest, count);
+            }
+        }
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file)))) {
+            for (long key : keys) {
+                Map<Integer, Integer> moves = counts.get(key);
+                int[] sorted = moves.keySet().stream().mapToInt(Integer::intValue).sorted().toArray();
+                for (int move : sorted) {
+                    out.writeLong(key);
+                    out.writeShort(move);
+                    out.writeShort(weight(moves.get(move), highest));
+                    out.writeInt(0);
+                }
+            }
+        }
+    }
+
+    /**
+     * Usage: OpeningBookBuilder &lt;book&gt; &lt;pgn&gt;...
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.out.println("Usage: OpeningBookBuilder <book> <pgn>...");
+            return;
+        }
+        OpeningBookBuilder builder = new OpeningBookBuilder();
+        for (int i = 1; i < args.length; i++) {
+            try (BufferedReader in = Files.newBufferedReader(Path.of(args[i]))) {
+                builder.addPgn(in);
+            }
+        }
+        builder.write(Path.of(args[0]));
+        System.out.println(builder.games() + " games (" + builder.skippedGames() + " cut short), "
+                + builder.entries() + " entries");
+    }
+
+    private void addSanMoves(ChessGame game, List<String> moves) {
+        if (game == null) {
+            skippedGames++;
+            games++;
+            return;
+        }
+        for (int ply = 0; ply < moves.size() && ply < maxPly; ply++) {
+            int move;
+            try {
+                move = Pgn.parseMove(game, moves.get(ply));
+            } catch (IllegalArgumentException ex) {
+                skippedGames++;
+                break;
+            }
+            count(game.getZobristKey(), move);
+            game.doMove(move);
+        }
+        games++;
+    }
+
+    /**
+     * Moves are stored without their flags, which fit in the entry's 16 bit move field
+     */
+    private void count(long key, int move) {
+        counts.computeIfAbsent(key, k -> new HashMap<>()).merge(PackedMove.withoutFlags(move), 1, Integer::sum);
+    }
+
+    /**
+     * Scales counts into the entry's 16 bit weight, keeping every played move above 0
+     */
+    private static int weight(int count, int highest) {
+        return highest <= MAX_WEIGHT ? count : Math.max(1, (int) ((long) count * MAX_WEIGHT / highest));
+    }
+
+    /**
+     * Reorders signed sorted keys into unsigned order, the negative keys move after the others
+     */
+    private static void sortUnsigned(long[] keys) {
+        int firstPositive = 0;
+        while (firstPositive < keys.length && keys[firstPositive] < 0) {
+            firstPositive++;
+        }
+        long[] reordered = new long[keys.length];
+        System.arraycopy(keys, firstPositive, reordered, 0, keys.length - firstPositive);
+        System.arraycopy(keys, 0, reordered, keys.length - firstPositive, firstPositive);
+        System.arraycopy(reordered, 0, keys, 0, keys.length);
+    }
+}
@@ -0,0 +1,192 @@
+package chess.engine;
+
+import chess.ChessGame;
+import chess.ChessMove;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Searches one position on several threads that share a transposition table (Lazy SMP). Every
+ * thread runs a full iterative deepening search of its own copy of the game; what one thread
+ * stores in the table cuts off and orders the others, so together they reach deeper in the same
+ * time. Helpers vary their depths and root move order so they do not all repeat the same work.
+ * The threads never age the table themselves, so no thread's entries look stale to the others. A
+ * table the ParallelSearcher made itself is aged once per search, before the threads start; a
+ * table passed in is aged by its owner (see TranspositionTable.newSearch).
+ * <p>
+ * The calling thread runs the main search and the helpers run on threads owned by this object.
+ * When the main search finishes, or stop is called, every helper is stopped, and the result of
+ * the deepest completed search is returned. Like a Searcher, one instance runs one search at a
+ * time. Close it to release the helper threads.
+ */
+public final class ParallelSearcher implements AutoCloseable {
+    private static final AtomicInteger POOL_NUMBER = new AtomicInteger();
+
+    private final TranspositionTable table;
+    private final boolean ownsTable;
+    private final Searcher[] searchers;
+    private final ExecutorService helpers;
+    private volatile boolean closed;
+
+    /**
+     * Searches on every available core with its own table
+     */
+    public ParallelSearcher() {
+        this(Runtime.getRuntime().availableProcessors(),
+                new TranspositionTable(Searcher.DEFAULT_TABLE_MEGABYTES * 4), SearchOptions.ALL, true);
+    }
+
+    /**
+     * @param threads number of threads to search with, including the calling thread
+     * @param table the transposition table shared by the threads, and possibly other searchers, its
+     *              owner calls newSearch on it
+     */
+    public ParallelSearcher(int threads, TranspositionTable table) {
+        this(threads, table, SearchOptions.ALL);
+    }
+
+    /**
+     * @param threads number of threads to search with, including the calling thread
+     * @param table the transposition table shared by the threads, and possibly other searchers, its
+     *              owner calls newSearch on it
+     * @param options which pruning and reductions every thread uses
+     */
+    public ParallelSearcher(int threads, TranspositionTable table, SearchOptions options) {
+        this(threads, table, options, false);
+    }
+
+    private ParallelSearcher(int threads, TranspositionTable table, SearchOptions options, boolean ownsTable) {
+        if (threads < 1) {
+            throw new IllegalArgumentException("At least one thread is needed");
+        }
+        this.table = table;
+        this.ownsTable = ownsTable;
+        searchers = new Searcher[threads];
+        for (int i = 0; i < threads; i++) {
+            searchers[i] = new Searcher(table, options);
+        }
+        String prefix = "search-" + POOL_NUMBER.incrementAndGet() + "-helper-";
+        AtomicInteger threadNumber = new AtomicInteger();
+        helpers = threads == 1 ? null : Executors.newFixedThreadPool(threads - 1, runnable -> {
+            Thread thread = new Thread(runnable, prefix + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * @return number of threads the search runs on
+     */
+    public int threads() {
+        return searchers.length;
+    }
+
+    /**
+     * @param game the position to search, it is not changed
+     * @param limits how long to search, a node limit is split evenly between the threads
+     * @return the best move found, or null if the team to move has no legal move
+     */
+    public ChessMove bestMove(ChessGame game, SearchLimits limits) {
+        return search(game, limits).move();
+    }
+
+    /**
+     * Searches the position on every thread until the main search reaches the limits or stop is
+     * called
+     *
+     * @param position the position to search, it is not changed
+     * @param limits how long to search, a node limit is split evenly between the threads
+     * @return the result of the deepest completed search, with the nodes of all threads
+     */
+    public SearchResult search(ChessGame position, SearchLimits limits) {
+        return search(position, limits, new SearchController());
+    }
+
+    /**
+     * Searches the position on every thread until the main search reaches the limits or the
+     * controller is cancelled. The controller hears about the iterations of the main search, the
+     * nodes it reports are those of the main thread.
+     *
+     * @param position the position to search, it is not changed
+     * @param limits how long to search, a node limit is split evenly between the threads
+     * @param controller cancels the search and receives its progress
+     * @return the result of the deepest completed search, with the nodes of all threads
+     */
+    public SearchResult search(ChessGame position, SearchLimits limits, SearchController controller) {
+        if (closed) {
+            throw new IllegalStateException("ParallelSearcher is closed");
+        }
+        long start = System.nanoTime();
+        AtomicBoolean stopHelpers = new AtomicBoolean();
+        SearchLimits threadLimits = limits.nodes() == 0 ? limits : new SearchLimits(limits.depth(),
+                Math.max(1, limits.nodes() / searchers.length), limits.timeMillis(), limits.softTimeMillis());
+
+        if (ownsTable) {
+            table.newSearch();
+        }
+        List<Future<SearchResult>> running = new ArrayList<>(searchers.length - 1);
+        for (int i = 1; i < searchers.length; i++) {
+            Searcher searcher = searchers[i];
+            int helper = i;
+            running.add(helpers.submit(() -> searcher.search(position, threadLimits, helper, stopHelpers, null)));
+        }
+        SearchResult best;
+        try {
+            best = searchers[0].search(position, threadLimits, 0, controller.flag(), controller.listener());
+        } finally {
+            stopHelpers.set(true);
+        }
+
+        long nodes = best.nodes();
+        for (Future<SearchResult> future : running) {
+            SearchResult result = join(future);
+            nodes += result.nodes();
+            if (result.depth() > best.depth()) {
+                best = result;
+            }
+        }
+        return new SearchResult(best.move(), best.score(), best.depth(), nodes,
+                (System.nanoTime() - start) / 1_000_000L);
+    }
+
+    /**
+     * Stops the running search from another thread, it returns what was found so far. A stop that
+     * comes just before a search starts stops that search.
+     */
+    public void stop() {
+        searchers[0].stop();
+    }
+
+    /**
+     * Stops the helper threads, the searcher cannot be used afterwards
+     */
+    @Override
+    public void close() {
+        closed = true;
+        stop();
+        if (helpers != null) {
+            helpers.shutdownNow();
+        }
+    }
+
+    private static SearchResult join(Future<SearchResult> future) {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for a search thread", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException runtime) {
+                throw runtime;
+            }
+            throw new IllegalStateException("Search thread failed", e.getCause());
+        }
+    }
+}
@@ -0,0 +1,113 @@
+package chess.engine;
+
+import chess.Bitboards;
+
+/**
+ * Scores the pawns by their structure: passed pawns, which no enemy pawn can stop, earn a bonus
+ * that grows as they advance, while isolated pawns, with no friendly pawn on a neighbouring file,
+ * and doubled pawns, behind another pawn of their team, are penalized. The terms depend on the
+ * pawns alone, so the search caches them under the board's pawn key.
+ */
+final class PawnStructure {
+    /**
+     * Passed pawn bonus by the number of rows the pawn has advanced from its team's first row
+     */
+    private static final int[] PASSED_MIDDLEGAME = {0, 5, 10, 15, 25, 45, 70, 0};
+    private static final int[] PASSED_ENDGAME = {0, 10, 20, 35, 60, 100, 150, 0};
+    private static final int ISOLATED_MIDDLEGAME = -5;
+    private static final int ISOLATED_ENDGAME = -15;
+    private static final int DOUBLED_MIDDLEGAME = -10;
+    private static final int DOUBLED_ENDGAME = -20;
+
+    private static final long[] ADJACENT_FILES = new long[8];
+    /**
+     * Squares in front of a pawn on its own and the neighbouring files, by color and square. A pawn
+     * is passed when no enemy pawn stands on them.
+     */
+    private static final long[][] PASSED_SPANS = new long[2][64];
+    private static final long[][] FORWARD_FILE = new long[2][64];
+
+    static {
+        for (int file = 0; file < 8; file++) {
+            ADJACENT_FILES[file] = (file > 0 ? Bitboards.FILE_A << (file - 1) : 0L)
+                    | (file < 7 ? Bitboards.FILE_A << (file + 1) : 0L);
+        }
+        for (int square = 0; square < 64; square++) {
+            int file = square & 7;
+            long files = ADJACENT_FILES[file] | (Bitboards.FILE_A << file);
+            long above = rowsAbove(square >>> 3);
+            long below = rowsBelow(square >>> 3);
+            PASSED_SPANS[0][square] = files & above;
+            PASSED_SPANS[1][square] = files & below;
+            FORWARD_FILE[0][square] = (Bitboards.FILE_A << file) & above;
+            FORWARD_FILE[1][square] = (Bitboards.FILE_A << file) & below;
+        }
+    }
+
+    private PawnStructure() {
+    }
+
+    /**
+     * @return the white minus black middlegame and endgame terms, packed with pack
+     */
+    static int evaluate(long whitePawns, long blackPawns) {
+        int middlegame = 0;
+        int endgame = 0;
+        for (long pawns = whitePawns; pawns != 0; pawns &= pawns - 1) {
+            int square = Long.numberOfTrailingZeros(pawns);
+            int file = square & 7;
+            if ((PASSED_SPANS[0][square] & blackPawns) == 0 && (FORWARD_FILE[0][square] & whitePawns) == 0) {
+                middlegame += PASSED_MIDDLEGAME[square >>> 3];
+                endgame += PASSED_ENDGAME[square >>> 3];
+            }
+            if ((ADJACENT_FILES[file] & whitePawns) == 0) {
+                middlegame += ISOLATED_MIDDLEGAME;
+                endgame += ISOLATED_ENDGAME;
+            }
+            if ((FORWARD_FILE[0][square] & whitePawns) != 0) {
+                middlegame += DOUBLED_MIDDLEGAME;
+                endgame += DOUBLED_ENDGAME;
+            }
+        }
+        for (long pawns = blackPawns; pawns != 0; pawns &= pawns - 1) {
+            int square = Long.numberOfTrailingZeros(pawns);
+            int file = square & 7;
+            if ((PASSED_SPANS[1][square] & whitePawns) == 0 && (FORWARD_FILE[1][square] & blackPawns) == 0) {
+                middlegame -= PASSED_MIDDLEGAME[7 - (square >>> 3)];
+                endgame -= PASSED_ENDGAME[7 - (square >>> 3)];
+            }
+            if ((ADJACENT_FILES[file] & blackPawns) == 0) {
+                middlegame -= ISOLATED_MIDDLEGAME;
+                endgame -= ISOLATED_ENDGAME;
+            }
+            if ((FORWARD_FILE[1][square] & blackPawns) != 0) {
+                middlegame -= DOUBLED_MIDDLEGAME;
+                endgame -= DOUBLED_ENDGAME;
+            }
+        }
+        return pack(middlegame, endgame);
+    }
+
+    /**
+     * Packs a middlegame and an endgame term into one int, 16 bits each
+     */
+    static int pack(int middlegame, int endgame) {
+        return (middlegame << 16) + endgame;
+    }
+
+    static int middlegame(int packed) {
+        return (packed + 0x8000) >> 16;
+    }
+
+    static int endgame(int packed) {
+        return (short) packed;
+    }
+
+    private static long rowsAbove(int row) {
+        return row == 7 ? 0L : -1L << ((row + 1) * 8);
+    }
+
+    private static long rowsBelow(int row) {
+        return row == 0 ? 0L : -1L >>> ((8 - row) * 8);
+    }
+}
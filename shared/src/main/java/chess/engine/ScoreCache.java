@@ -0,0 +1,57 @@
+package chess.engine;
+
+import java.util.Arrays;
+
+/**
+ * A fixed size table from 64-bit Zobrist keys to int scores, for results that are cheaper to look
+ * up than to compute again. Each key has one slot and a new score always replaces the old one.
+ * Entries take two longs, the key XOR the data and the data, so an entry torn by another thread
+ * reads as a miss, like in the TranspositionTable.
+ */
+final class ScoreCache {
+    /**
+     * Returned by probe when the key is not in the cache, never a stored score
+     */
+    static final int MISS = Integer.MIN_VALUE;
+
+    private static final long PRESENT = 1L << 32;
+
+    private final long[] entries;
+    private final int mask;
+
+    /**
+     * @param entries number of scores to hold, rounded down to a power of two
+     */
+    ScoreCache(int entries) {
+        int size = Integer.highestOneBit(Math.max(1, entries));
+        this.entries = new long[size * 2];
+        mask = size - 1;
+    }
+
+    /**
+     * @return the stored score, or MISS
+     */
+    int probe(long key) {
+        int slot = slot(key);
+        long data = entries[slot + 1];
+        if (data != 0 && (entries[slot] ^ data) == key) {
+            return (int) data;
+        }
+        return MISS;
+    }
+
+    void store(long key, int score) {
+        int slot = slot(key);
+        long data = PRESENT | (score & 0xFFFFFFFFL);
+        entries[slot] = key ^ data;
+        entries[slot + 1] = data;
+    }
+
+    void clear() {
+        Arrays.fill(entries, 0L);
+    }
+
+    private int slot(long key) {
+        return (int) ((key ^ (key >>> 32)) & mask) * 2;
+    }
+}
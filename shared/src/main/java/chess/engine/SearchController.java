@@ -0,0 +1,48 @@
+package chess.engine;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Lets the code that starts a search follow and cancel it. Cancelling is cooperative: the search
+ * checks the flag every thousand or so positions and returns the best move of the iterations it
+ * finished, so any thread may cancel, for example when the client waiting for the answer goes
+ * away. A search whose controller was cancelled before it started returns almost at once. Each
+ * search needs its own controller.
+ */
+public final class SearchController {
+    private final AtomicBoolean cancelled = new AtomicBoolean();
+    private final SearchListener listener;
+
+    public SearchController() {
+        this(null);
+    }
+
+    /**
+     * @param listener told about every finished iteration, or null
+     */
+    public SearchController(SearchListener listener) {
+        this.listener = listener;
+    }
+
+    /**
+     * Asks the search to stop, it can be called from any thread and more than once
+     */
+    public void cancel() {
+        cancelled.set(true);
+    }
+
+    /**
+     * @return true once cancel was called
+     */
+    public boolean isCancelled() {
+        return cancelled.get();
+    }
+
+    SearchListener listener() {
+        return listener;
+    }
+
+    AtomicBoolean flag() {
+        return cancelled;
+    }
+}
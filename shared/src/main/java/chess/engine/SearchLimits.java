@@ -0,0 +1,74 @@
+package chess.engine;
+
+/**
+ * How long a search may run. The search deepens one move at a time until it reaches the depth or
+ * runs out of nodes or time, whichever comes first.
+ * <p>
+ * The time limit is a hard deadline, the search stops in the middle of an iteration when it
+ * passes. The soft time limit is checked between iterations: once it has passed no new iteration
+ * is started, so the search usually ends on a finished iteration well before the hard deadline.
+ *
+ * @param depth the deepest iteration to search, in moves
+ * @param nodes the number of positions the search may visit, 0 for no limit
+ * @param timeMillis the wall clock time the search may take, 0 for no limit
+ * @param softTimeMillis the wall clock time after which no new iteration is started, 0 for no limit
+ */
+public record SearchLimits(int depth, long nodes, long timeMillis, long softTimeMillis) {
+    public static final int MAX_DEPTH = 64;
+
+    /**
+     * A game on the clock is expected to last this many more moves when the time for one is planned
+     */
+    private static final int MOVES_TO_GO = 30;
+
+    public SearchLimits {
+        if (depth < 1 || depth > MAX_DEPTH) {
+            throw new IllegalArgumentException("Depth must be between 1 and " + MAX_DEPTH);
+        }
+        if (nodes < 0 || timeMillis < 0 || softTimeMillis < 0) {
+            throw new IllegalArgumentException("Limits cannot be negative");
+        }
+    }
+
+    public SearchLimits(int depth, long nodes, long timeMillis) {
+        this(depth, nodes, timeMillis, 0);
+    }
+
+    public static SearchLimits depth(int depth) {
+        return new SearchLimits(depth, 0, 0);
+    }
+
+    public static SearchLimits nodes(long nodes) {
+        return new SearchLimits(MAX_DEPTH, nodes, 0);
+    }
+
+    public static SearchLimits time(long timeMillis) {
+        return new SearchLimits(MAX_DEPTH, 0, timeMillis);
+    }
+
+    /**
+     * Plans the time for one move of a game on the clock: the remaining time spread over the moves
+     * still to come plus most of the increment, as the soft limit. The hard limit lets an iteration
+     * that started in time run up to four times as long, but never past a third of the remaining
+     * time.
+     *
+     * @param remainingMillis time left on the team's clock
+     * @param incrementMillis time added to the clock after each move
+     * @throws IllegalArgumentException if no time is left
+     */
+    public static SearchLimits clock(long remainingMillis, long incrementMillis) {
+        if (remainingMillis <= 0 || incrementMillis < 0) {
+            throw new IllegalArgumentException("No time left on the clock");
+        }
+        long soft = remainingMillis / MOVES_TO_GO + incrementMillis * 3 / 4;
+        long hard = Math.min(soft * 4, remainingMillis / 3 + incrementMillis);
+        return new SearchLimits(MAX_DEPTH, 0, Math.max(1, hard), Math.max(1, Math.min(soft, hard)));
+    }
+
+    /**
+     * @return these limits with another soft time limit
+     */
+    public SearchLimits withSoftTime(long softTimeMillis) {
+        return new SearchLimits(depth, nodes, timeMillis, softTimeMillis);
+    }
+}
@@ -0,0 +1,14 @@
+package chess.engine;
+
+/**
+ * Follows a search as it deepens, see SearchController
+ */
+@FunctionalInterface
+public interface SearchListener {
+    /**
+     * Called on the searching thread after every finished iteration, so it should return quickly
+     *
+     * @param progress the result of the iteration
+     */
+    void iterationFinished(SearchProgress progress);
+}
@@ -0,0 +1,19 @@
+package chess.engine;
+
+/**
+ * Switches for the selective parts of the search. They each let the search skip or shorten
+ * branches that are unlikely to matter, so it gets deeper on the same nodes at a small risk of
+ * missing something; turning them off is meant for comparing and benchmarking.
+ *
+ * @param nullMove let the team to move pass, and cut the branch off when it is still winning
+ * @param lateMoveReductions search the quiet moves that come late in the move order less deeply,
+ * and fully only when one of them turns out better than expected
+ * @param futility skip quiet moves one move from the horizon that cannot bring the static score
+ * up to alpha
+ * @param razoring go straight to the quiescence search two moves from the horizon when the static
+ * score is far below alpha
+ */
+public record SearchOptions(boolean nullMove, boolean lateMoveReductions, boolean futility, boolean razoring) {
+    public static final SearchOptions ALL = new SearchOptions(true, true, true, true);
+    public static final SearchOptions NONE = new SearchOptions(false, false, false, false);
+}
@@ -0,0 +1,30 @@
+package chess.engine;
+
+import chess.ChessMove;
+
+import java.util.List;
+
+/**
+ * What a search knows after finishing an iteration
+ *
+ * @param depth the iteration that finished, in moves
+ * @param score the score of the position for the side to move in centipawns, mate scores are
+ *              close to Searcher.MATE
+ * @param principalVariation the moves both sides are expected to play, best move first
+ * @param nodes the number of positions visited so far
+ * @param timeMillis how long the search has run
+ */
+public record SearchProgress(int depth, int score, List<ChessMove> principalVariation, long nodes,
+                             long timeMillis) {
+
+    public SearchProgress {
+        principalVariation = List.copyOf(principalVariation);
+    }
+
+    /**
+     * @return positions visited per second so far
+     */
+    public long nodesPerSecond() {
+        return nodes * 1000 / Math.max(1, timeMillis);
+    }
+}
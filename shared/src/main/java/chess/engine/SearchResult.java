@@ -0,0 +1,23 @@
+package chess.engine;
+
+import chess.ChessMove;
+
+/**
+ * What a search found
+ *
+ * @param move the best move, or null if the side to move has no legal move
+ * @param score the score of the position for the side to move in centipawns, mate scores are
+ *              close to Searcher.MATE
+ * @param depth the deepest iteration that finished
+ * @param nodes the number of positions visited
+ * @param timeMillis how long the search took
+ */
+public record SearchResult(ChessMove move, int score, int depth, long nodes, long timeMillis) {
+
+    /**
+     * @return true if the score means a forced checkmate for one of the teams
+     */
+    public boolean isMate() {
+        return Math.abs(score) >= Searcher.MATE - Searcher.MAX_PLY;
+    }
+}
@@ -0,0 +1,585 @@
+package chess.engine;
+
+import chess.Bitbase;
+import chess.ChessBoard;
+import chess.ChessGame;
+import chess.ChessMove;
+import chess.ChessPiece;
+import chess.MoveList;
+import chess.PackedMove;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Finds the best move for the team to move with a negamax alpha-beta search. The search deepens
+ * one move at a time so it always has an answer when its node or time budget runs out, and
+ * past the last full move it keeps following captures (quiescence search) so positions are not
+ * scored in the middle of an exchange.
+ * <p>
+ * Results are kept in a transposition table, which several Searchers may share so that positions
+ * one search already looked at are not searched again by the next. A Searcher starts a new table
+ * generation for every search only when it made the table itself; whoever passes a table in owns
+ * it and calls TranspositionTable.newSearch.
+ * <p>
+ * Captures into an ending the bitbases cover (see Bitbase) are scored from the bitbase without
+ * searching further. When the game is already in such an ending the search runs as usual, but a
+ * team that is winning only considers the moves that keep the win.
+ * <p>
+ * A Searcher reuses its move lists between searches, so one instance must not run several searches
+ * at once, though another thread may stop the running one. It searches a copy of the game, the game
+ * passed in is never changed. ParallelSearcher runs several Searchers on one position.
+ */
+public final class Searcher {
+    /**
+     * Score of checkmating on the current move, a mate found n moves deep scores MATE - n
+     */
+    public static final int MATE = 32000;
+    static final int INFINITY = MATE + 1;
+    static final int MAX_PLY = 128;
+    static final int DEFAULT_TABLE_MEGABYTES = 16;
+    /**
+     * Score of a won ending found in the bitbases, the static score is added so the search still
+     * prefers the better placed pieces
+     */
+    static final int KNOWN_WIN = 10_000;
+
+    /**
+     * How far below alpha the static score must be, one and two moves from the horizon, before
+     * the position is left to the quiescence search
+     */
+    private static final int[] RAZOR_MARGINS = {0, 300, 500};
+    /**
+     * A quiet move one move from the horizon is skipped when the static score plus this is still
+     * no better than alpha
+     */
+    private static final int FUTILITY_MARGIN = 200;
+    private static final int NOT_AN_ENDING = Integer.MIN_VALUE;
+    /**
+     * Late move reductions by remaining depth and number of moves searched before, growing with
+     * the logarithm of both
+     */
+    private static final int[][] REDUCTIONS = new int[64][64];
+
+    static {
+        for (int depth = 1; depth < 64; depth++) {
+            for (int searched = 1; searched < 64; searched++) {
+                REDUCTIONS[depth][searched] = (int) (0.75 + Math.log(depth) * Math.log(searched) / 2.25);
+            }
+        }
+    }
+
+    private final SearchOptions options;
+
+    private final TranspositionTable table;
+    private final boolean ownsTable;
+    private final Evaluator evaluator = new Evaluator();
+    private final MoveHistory history = new MoveHistory();
+    private final MovePicker[] pickers = new MovePicker[MAX_PLY];
+    private final MoveList root = new MoveList(64);
+    private final long[] keys = new long[MAX_PLY];
+    private ChessGame game;
+    private long nodes;
+    private long nodeLimit;
+    private long deadline;
+    private boolean stopped;
+    private int helper;
+    private boolean probeEndings;
+    private AtomicBoolean cancelled = new AtomicBoolean();
+    /**
+     * Set by stop, kept for the Searcher's lifetime so a stop is not lost when a search swaps in its
+     * own cancel flag, and cleared when the search it stopped returns
+     */
+    private final AtomicBoolean stopRequested = new AtomicBoolean();
+
+    /**
+     * Searches with a table of its own, which it ages at the start of every search
+     */
+    public Searcher() {
+        this(new TranspositionTable(DEFAULT_TABLE_MEGABYTES), SearchOptions.ALL, true);
+    }
+
+    /**
+     * @param table the transposition table to use, it may be shared with other Searchers, its owner
+     *              calls newSearch on it
+     */
+    public Searcher(TranspositionTable table) {
+        this(table, SearchOptions.ALL);
+    }
+
+    /**
+     * @param table the transposition table to use, it may be shared with other Searchers, its owner
+     *              calls newSearch on it
+     * @param options which pruning and reductions to use
+     */
+    public Searcher(TranspositionTable table, SearchOptions options) {
+        this(table, options, false);
+    }
+
+    private Searcher(TranspositionTable table, SearchOptions options, boolean ownsTable) {
+        this.table = table;
+        this.options = options;
+        this.ownsTable = ownsTable;
+        for (int ply = 0; ply < MAX_PLY; ply++) {
+            pickers[ply] = new MovePicker(history);
+        }
+    }
+
+    /**
+     * @param game the position to search, it is not changed
+     * @param limits how long to search
+     * @return the best move found, or null if the team to move has no legal move
+     */
+    public ChessMove bestMove(ChessGame game, SearchLimits limits) {
+        return search(game, limits).move();
+    }
+
+    /**
+     * Searches the position until the limits are reached
+     *
+     * @param position the position to search, it is not changed
+     * @param limits how long to search
+     * @return the best move with its score and statistics about the search
+     */
+    public SearchResult search(ChessGame position, SearchLimits limits) {
+        return search(position, limits, new SearchController());
+    }
+
+    /**
+     * Searches the position until the limits are reached or the controller is cancelled
+     *
+     * @param position the position to search, it is not changed
+     * @param limits how long to search
+     * @param controller cancels the search and receives its progress
+     * @return the best move with its score and statistics about the search
+     */
+    public SearchResult search(ChessGame position, SearchLimits limits, SearchController controller) {
+        return search(position, limits, 0, controller.flag(), controller.listener());
+    }
+
+    /**
+     * Stops the running search from another thread, it returns the best move of the last
+     * completed iteration. A stop that comes just before a search starts stops that search.
+     */
+    public void stop() {
+        stopRequested.set(true);
+    }
+
+    /**
+     * Searches as one of several threads sharing the transposition table. Helpers start one iteration
+     * deeper every other thread and try a different root move second, so the threads spread over the
+     * tree instead of all searching the same moves in the same order.
+     *
+     * @param helper 0 for the main thread, the helper's number otherwise
+     * @param cancel set by any thread to stop every search sharing it
+     * @param listener told about every finished iteration, or null
+     */
+    SearchResult search(ChessGame position, SearchLimits limits, int helper, AtomicBoolean cancel,
+                        SearchListener listener) {
+        try {
+            return run(position, limits, helper, cancel, listener);
+        } finally {
+            stopRequested.set(false);
+        }
+    }
+
+    private SearchResult run(ChessGame position, SearchLimits limits, int helper, AtomicBoolean cancel,
+                             SearchListener listener) {
+        this.helper = helper;
+        this.cancelled = cancel;
+        long start = System.nanoTime();
+        game = position.copy();
+        evaluator.reset(game);
+        nodes = 0;
+        nodeLimit = limits.nodes();
+        deadline = limits.timeMillis() > 0 ? start + limits.timeMillis() * 1_000_000L : Long.MAX_VALUE;
+        long softDeadline = limits.softTimeMillis() > 0 ? start + limits.softTimeMillis() * 1_000_000L
+                : Long.MAX_VALUE;
+        stopped = false;
+        if (ownsTable) {
+            table.newSearch();
+        }
+        history.newSearch();
+
+        ChessGame.TeamColor turn = game.getTeamTurn();
+        root.clear();
+        game.legalMoves(turn, root);
+        if (root.isEmpty()) {
+            return new SearchResult(null, game.isInCheck(turn) ? -MATE : 0, 0, 0, elapsedMillis(start));
+        }
+        keys[0] = game.getZobristKey();
+        Bitbase.Outcome outcome = game.getEndgameOutcome();
+        probeEndings = outcome == null;
+        if (outcome == Bitbase.Outcome.WIN) {
+            keepWinningMoves();
+        }
+
+        int bestMove = root.get(0);
+        int bestScore = -INFINITY;
+        int completed = 0;
+        for (int depth = 1 + (helper & 1); depth <= limits.depth(); depth++) {
+            moveToFront(root, bestMove);
+            if (helper > 0 && root.size() > 2) {
+                int second = 1 + (helper + depth) % (root.size() - 1);
+                int move = root.get(second);
+                root.set(second, root.get(1));
+                root.set(1, move);
+            }
+            int iterationMove = PackedMove.NONE;
+            int alpha = -INFINITY;
+            for (int i = 0; i < root.size(); i++) {
+                int move = root.get(i);
+                evaluator.doMove(move);
+                int score = -negamax(depth - 1, -INFINITY, -alpha, 1, true);
+                evaluator.undoMove();
+                if (stopped) {
+                    break;
+                }
+                if (score > alpha) {
+                    alpha = score;
+                    iterationMove = move;
+                }
+            }
+            if (iterationMove != PackedMove.NONE) {
+                bestMove = iterationMove;
+                bestScore = alpha;
+            }
+            if (stopped) {
+                break;
+            }
+            completed = depth;
+            table.store(keys[0], bestMove, bestScore, depth, TranspositionTable.EXACT);
+            if (listener != null) {
+                listener.iterationFinished(new SearchProgress(depth, bestScore,
+                        principalVariation(bestMove, depth), nodes, elapsedMillis(start)));
+            }
+            if (Math.abs(bestScore) >= MATE - MAX_PLY || System.nanoTime() > softDeadline) {
+                break;
+            }
+        }
+        return new SearchResult(PackedMove.toChessMove(bestMove), bestScore, completed, nodes, elapsedMillis(start));
+    }
+
+    private int negamax(int depth, int alpha, int beta, int ply, boolean nullAllowed) {
+        if (depth <= 0) {
+            return quiescence(alpha, beta, ply);
+        }
+        nodes++;
+        if (shouldStop()) {
+            return 0;
+        }
+        keys[ply] = game.getZobristKey();
+        if (isDraw(ply)) {
+            return 0;
+        }
+        if (ply >= MAX_PLY - 1) {
+            return evaluator.evaluate();
+        }
+        int ending = endingScore();
+        if (ending != NOT_AN_ENDING) {
+            return ending;
+        }
+        long entry = table.probe(keys[ply]);
+        if (entry != 0 && TranspositionTable.depth(entry) >= depth) {
+            int score = fromTable(TranspositionTable.score(entry), ply);
+            int bound = TranspositionTable.bound(entry);
+            if (bound == TranspositionTable.EXACT
+                    || (bound == TranspositionTable.LOWER && score >= beta)
+                    || (bound == TranspositionTable.UPPER && score <= alpha)) {
+                return score;
+            }
+        }
+
+        ChessGame.TeamColor turn = game.getTeamTurn();
+        boolean inCheck = game.isInCheck(turn);
+        boolean mateBounds = Math.abs(alpha) >= MATE - MAX_PLY || Math.abs(beta) >= MATE - MAX_PLY;
+        int staticScore = inCheck ? -INFINITY : evaluator.evaluate();
+        if (options.razoring() && !inCheck && !mateBounds && depth <= 2
+                && staticScore + RAZOR_MARGINS[depth] <= alpha) {
+            int score = quiescence(alpha, alpha + 1, ply);
+            if (stopped || score <= alpha) {
+                return score;
+            }
+        }
+        if (options.nullMove() && nullAllowed && !inCheck && !mateBounds && depth >= 3
+                && staticScore >= beta && hasPiecesBesidesPawns(turn)) {
+            evaluator.doNullMove();
+            int score = -negamax(depth - 1 - nullReduction(depth), -beta, -beta + 1, ply + 1, false);
+            evaluator.undoMove();
+            if (stopped) {
+                return 0;
+            }
+            if (score >= beta) {
+                return score >= MATE - MAX_PLY ? beta : score;
+            }
+        }
+        boolean futile = options.futility() && !inCheck && !mateBounds && depth == 1
+                && staticScore + FUTILITY_MARGIN <= alpha;
+
+        MovePicker picker = pickers[ply];
+        picker.reset(game, ply, TranspositionTable.move(entry), false);
+        int originalAlpha = alpha;
+        int best = -INFINITY;
+        int bestMove = PackedMove.NONE;
+        int searched = 0;
+        for (int move = picker.next(); move != PackedMove.NONE; move = picker.next()) {
+            ChessPiece moved = game.getBoard().getPiece(PackedMove.from(move));
+            boolean quiet = !MovePicker.isCapture(move);
+            evaluator.doMove(move);
+            boolean givesCheck = game.isInCheck(game.getTeamTurn());
+            if (futile && quiet && !givesCheck && searched > 0) {
+                evaluator.undoMove();
+                continue;
+            }
+            int reduction = 0;
+            if (options.lateMoveReductions() && quiet && !inCheck && !givesCheck && depth >= 3
+                    && searched >= 3 && picker.isLateMove()) {
+                reduction = Math.min(depth - 2, REDUCTIONS[Math.min(depth, 63)][Math.min(searched, 63)]);
+            }
+            int score;
+            if (reduction > 0) {
+                score = -negamax(depth - 1 - reduction, -alpha - 1, -alpha, ply + 1, true);
+                if (score > alpha) {
+                    score = -negamax(depth - 1, -beta, -alpha, ply + 1, true);
+                }
+            } else {
+                score = -negamax(depth - 1, -beta, -alpha, ply + 1, true);
+            }
+            evaluator.undoMove();
+            searched++;
+            if (stopped) {
+                return 0;
+            }
+            if (score > best) {
+                best = score;
+                bestMove = move;
+                if (score > alpha) {
+                    alpha = score;
+                    if (alpha >= beta) {
+                        if (quiet) {
+                            history.cutoff(ply, moved, move, depth);
+                        }
+                        break;
+                    }
+                }
+            }
+        }
+        if (searched == 0) {
+            return inCheck ? -MATE + ply : 0;
+        }
+        int bound = best >= beta ? TranspositionTable.LOWER
+                : best > originalAlpha ? TranspositionTable.EXACT : TranspositionTable.UPPER;
+        table.store(keys[ply], bound == TranspositionTable.UPPER ? PackedMove.NONE : bestMove,
+                toTable(best, ply), depth, bound);
+        return best;
+    }
+
+    /**
+     * @return true if the team has a piece other than its king and pawns, without one passing is
+     * often the best it can do (zugzwang) and a null move would score the position wrong
+     */
+    private boolean hasPiecesBesidesPawns(ChessGame.TeamColor color) {
+        ChessBoard board = game.getBoard();
+        return (board.getPieces(color) & ~board.getPieces(color, ChessPiece.PieceType.PAWN)
+                & ~board.getPieces(color, ChessPiece.PieceType.KING)) != 0;
+    }
+
+    /**
+     * @return the score of the position if it is an ending the bitbases cover and the root was not
+     * one, otherwise NOT_AN_ENDING
+     */
+    private int endingScore() {
+        if (!probeEndings || Long.bitCount(game.getBoard().getOccupancy()) > 3) {
+            return NOT_AN_ENDING;
+        }
+        Bitbase.Outcome outcome = game.getEndgameOutcome();
+        if (outcome == null) {
+            return NOT_AN_ENDING;
+        }
+        return switch (outcome) {
+            case WIN -> KNOWN_WIN + evaluator.evaluate();
+            case LOSS -> -KNOWN_WIN + evaluator.evaluate();
+            case DRAW -> 0;
+        };
+    }
+
+    /**
+     * Drops the root moves that let a won ending slip into a draw, so a search too shallow to see
+     * the mate cannot throw the win away. If no move probes as keeping the win, which only an
+     * inconsistent table could cause, every move is kept.
+     */
+    private void keepWinningMoves() {
+        int[] winning = new int[root.size()];
+        int kept = 0;
+        for (int i = 0; i < root.size(); i++) {
+            game.doMove(root.get(i));
+            if (game.getEndgameOutcome() == Bitbase.Outcome.LOSS) {
+                winning[kept++] = root.get(i);
+            }
+            game.undoMove();
+        }
+        if (kept == 0) {
+            return;
+        }
+        root.clear();
+        for (int i = 0; i < kept; i++) {
+            root.add(winning[i]);
+        }
+    }
+
+    private static int nullReduction(int depth) {
+        return depth >= 7 ? 3 : 2;
+    }
+
+    /**
+     * Searches only captures and promotions that do not lose material, by static exchange, until
+     * the position is quiet. The team to move may
+     * also stop capturing and take the static score (stand pat), unless it is in check, in which
+     * case every move is searched so checkmates are still seen.
+     */
+    private int quiescence(int alpha, int beta, int ply) {
+        nodes++;
+        if (shouldStop()) {
+            return 0;
+        }
+        if (ply >= MAX_PLY - 1) {
+            return evaluator.evaluate();
+        }
+        int ending = endingScore();
+        if (ending != NOT_AN_ENDING) {
+            return ending;
+        }
+        boolean inCheck = game.isInCheck(game.getTeamTurn());
+        int best = -INFINITY;
+        if (!inCheck) {
+            best = evaluator.evaluate();
+            if (best >= beta) {
+                return best;
+            }
+            alpha = Math.max(alpha, best);
+        }
+        MovePicker picker = pickers[ply];
+        picker.reset(game, ply, PackedMove.NONE, true);
+        for (int move = picker.next(); move != PackedMove.NONE; move = picker.next()) {
+            evaluator.doMove(move);
+            int score = -quiescence(-beta, -alpha, ply + 1);
+            evaluator.undoMove();
+            if (stopped) {
+                return 0;
+            }
+            if (score > best) {
+                best = score;
+                if (score > alpha) {
+                    alpha = score;
+                    if (alpha >= beta) {
+                        break;
+                    }
+                }
+            }
+        }
+        if (best == -INFINITY) {
+            return -MATE + ply;
+        }
+        return best;
+    }
+
+    /**
+     * Mate scores count moves from the root, the table stores them counted from the position itself
+     * so they stay right when the position is reached at another ply
+     */
+    private static int toTable(int score, int ply) {
+        if (score >= MATE - MAX_PLY) {
+            return score + ply;
+        }
+        if (score <= -MATE + MAX_PLY) {
+            return score - ply;
+        }
+        return score;
+    }
+
+    private static int fromTable(int score, int ply) {
+        if (score >= MATE - MAX_PLY) {
+            return score - ply;
+        }
+        if (score <= -MATE + MAX_PLY) {
+            return score + ply;
+        }
+        return score;
+    }
+
+    /**
+     * @return true if the fifty move rule applies or the position already came up since the last
+     * capture or pawn move during this search
+     */
+    private boolean isDraw(int ply) {
+        int halfmoves = game.getHalfmoveClock();
+        if (halfmoves >= 100) {
+            return true;
+        }
+        for (int earlier = ply - 4; earlier >= Math.max(0, ply - halfmoves); earlier -= 2) {
+            if (keys[earlier] == keys[ply]) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private boolean shouldStop() {
+        if (nodeLimit > 0 && nodes >= nodeLimit) {
+            stopped = true;
+        } else if ((nodes & 1023) == 0
+                && (cancelled.get() || stopRequested.get() || System.nanoTime() > deadline)) {
+            stopped = true;
+        }
+        return stopped;
+    }
+
+    /**
+     * Follows the best moves the transposition table remembers from the root. Entries can be
+     * overwritten or belong to another position with the same key, so the line ends at the first
+     * missing or illegal move.
+     *
+     * @param length the most moves to follow, the depth of the iteration
+     */
+    private List<ChessMove> principalVariation(int bestMove, int length) {
+        List<ChessMove> line = new ArrayList<>();
+        MoveList pieceMoves = new MoveList(32);
+        int move = bestMove;
+        while (move != PackedMove.NONE && line.size() < length) {
+            line.add(PackedMove.toChessMove(move));
+            game.doMove(move);
+            int next = TranspositionTable.move(table.probe(game.getZobristKey()));
+            move = PackedMove.NONE;
+            ChessPiece piece = next == PackedMove.NONE ? null : game.getBoard().getPiece(PackedMove.from(next));
+            if (piece != null && piece.getTeamColor() == game.getTeamTurn()) {
+                pieceMoves.clear();
+                game.validMoves(PackedMove.from(next), pieceMoves);
+                for (int i = 0; i < pieceMoves.size(); i++) {
+                    if (PackedMove.withoutFlags(pieceMoves.get(i)) == PackedMove.withoutFlags(next)) {
+                        move = pieceMoves.get(i);
+                        break;
+                    }
+                }
+            }
+        }
+        for (int i = 0; i < line.size(); i++) {
+            game.undoMove();
+        }
+        return line;
+    }
+
+    private static void moveToFront(MoveList list, int move) {
+        for (int i = 0; i < list.size(); i++) {
+            if (list.get(i) == move) {
+                list.set(i, list.get(0));
+                list.set(0, move);
+                return;
+            }
+        }
+    }
+
+    private static long elapsedMillis(long start) {
+        return (System.nanoTime() - start) / 1_000_000L;
+    }
+}
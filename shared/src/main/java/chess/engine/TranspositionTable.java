@@ -0,0 +1,153 @@
+package chess.engine;
+
+import java.util.Arrays;
+
+/**
+ * Remembers what the search found about positions it already visited, keyed by Zobrist key, so a
+ * position reached again by another move order, in the next iteration or by another search is not
+ * searched twice. Each entry holds the best move, the score, the depth searched and whether the
+ * score is exact or only a bound.
+ * <p>
+ * The table is a fixed size long array, it never allocates after it is built. Entries take two
+ * longs: the key XOR the data, then the data. Threads read and write without locking; an entry
+ * half written by another thread fails the XOR check and reads as a miss, and an entry overwritten
+ * by another position is simply lost, which only costs search time.
+ * <p>
+ * Slots come in pairs: the first keeps the deepest result, the second always takes the newest.
+ * Entries from an earlier generation give way to new ones even if they are deeper. Whoever owns
+ * the table starts a generation once per top-level search with newSearch, threads searching the
+ * same position together must not each start one.
+ */
+public final class TranspositionTable {
+    /**
+     * The score is exact
+     */
+    public static final int EXACT = 1;
+    /**
+     * The real score is at least the stored score, the search stopped at a beta cutoff
+     */
+    public static final int LOWER = 2;
+    /**
+     * The real score is at most the stored score, no move raised alpha
+     */
+    public static final int UPPER = 3;
+
+    private static final int MOVE_BITS = 20;
+    private static final int SCORE_SHIFT = 20;
+    private static final int DEPTH_SHIFT = 36;
+    private static final int BOUND_SHIFT = 44;
+    private static final int AGE_SHIFT = 46;
+
+    private final long[] entries;
+    private final int bucketMask;
+    private volatile int age;
+
+    /**
+     * @param megabytes memory to use, rounded down to a power of two number of entries
+     */
+    public TranspositionTable(int megabytes) {
+        if (megabytes < 1) {
+            throw new IllegalArgumentException("Table size must be at least 1 MB");
+        }
+        long buckets = Long.highestOneBit(Math.min((long) megabytes * (1 << 20) / 32, 1L << 26));
+        entries = new long[(int) buckets * 4];
+        bucketMask = (int) buckets - 1;
+    }
+
+    /**
+     * Looks a position up
+     *
+     * @param key the position's Zobrist key
+     * @return the entry's data, read with move, score, depth and bound, or 0 if the position is not
+     * in the table
+     */
+    public long probe(long key) {
+        int index = index(key);
+        for (int slot = index; slot < index + 4; slot += 2) {
+            long data = entries[slot + 1];
+            if (data != 0 && (entries[slot] ^ data) == key) {
+                return data;
+            }
+        }
+        return 0L;
+    }
+
+    /**
+     * Saves what the search found about a position
+     *
+     * @param key the position's Zobrist key
+     * @param move the best move as a packed int, or PackedMove.NONE
+     * @param score the score, mate scores must already be relative to this position
+     * @param depth the depth searched below the position
+     * @param bound EXACT, LOWER or UPPER
+     */
+    public void store(long key, int move, int score, int depth, int bound) {
+        int age = this.age;
+        if (move == 0) {
+            move = move(probe(key));
+        }
+        long data = (move & ((1L << MOVE_BITS) - 1))
+                | ((long) (score + 32768) << SCORE_SHIFT)
+                | ((long) Math.max(0, Math.min(depth, 255)) << DEPTH_SHIFT)
+                | ((long) bound << BOUND_SHIFT)
+                | ((long) age << AGE_SHIFT);
+        int index = index(key);
+        long deepest = entries[index + 1];
+        int slot = index + 2;
+        if (deepest == 0 || (entries[index] ^ deepest) == key || depth >= depth(deepest) || age(deepest) != age) {
+            slot = index;
+        }
+        entries[slot] = key ^ data;
+        entries[slot + 1] = data;
+    }
+
+    /**
+     * Marks entries written so far as old, so a new search replaces them even if they are deeper.
+     * It is called once per top-level search, not by every thread taking part in it.
+     */
+    public synchronized void newSearch() {
+        age = (age + 1) & 0xFF;
+    }
+
+    /**
+     * @return the current generation, see newSearch
+     */
+    int generation() {
+        return age;
+    }
+
+    public void clear() {
+        Arrays.fill(entries, 0L);
+    }
+
+    /**
+     * @return number of entries the table can hold
+     */
+    public int capacity() {
+        return entries.length / 2;
+    }
+
+    public static int move(long data) {
+        return (int) (data & ((1L << MOVE_BITS) - 1));
+    }
+
+    public static int score(long data) {
+        return (int) ((data >>> SCORE_SHIFT) & 0xFFFF) - 32768;
+    }
+
+    public static int depth(long data) {
+        return (int) ((data >>> DEPTH_SHIFT) & 0xFF);
+    }
+
+    public static int bound(long data) {
+        return (int) ((data >>> BOUND_SHIFT) & 0x3);
+    }
+
+    private static int age(long data) {
+        return (int) ((data >>> AGE_SHIFT) & 0xFF);
+    }
+
+    private int index(long key) {
+        return (int) ((key ^ (key >>> 32)) & bucketMask) * 4;
+    }
+}
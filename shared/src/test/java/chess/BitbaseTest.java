@@ -0,0 +1,127 @@
+package chess;
+
+import org.junit.jupiter.api.*;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+public class BitbaseTest {
+
+    @TempDir
+    Path directory;
+
+    @BeforeAll
+    static void loadTables() {
+        Bitbase.load();
+    }
+
+    @Test
+    void knowsClassicEndings() {
+        assertOutcome(Bitbase.Outcome.WIN, "4k3/8/4K3/4P3/8/8/8/8 w - - 0 1");
+        assertOutcome(Bitbase.Outcome.LOSS, "4k3/8/4K3/4P3/8/8/8/8 b - - 0 1");
+        assertOutcome(Bitbase.Outcome.DRAW, "8/8/8/8/8/4k3/4P3/4K3 w - - 0 1");
+        assertOutcome(Bitbase.Outcome.WIN, "7k/8/8/8/8/8/P7/K7 w - - 0 1");
+        assertOutcome(Bitbase.Outcome.DRAW, "k7/8/8/8/8/8/P7/K7 w - - 0 1");
+        assertOutcome(Bitbase.Outcome.LOSS, "8/8/8/4k3/8/8/8/R3K3 b - - 0 1");
+        assertOutcome(Bitbase.Outcome.DRAW, "8/8/8/8/8/8/1k6/R3K3 b - - 0 1");
+        assertOutcome(Bitbase.Outcome.DRAW, "8/8/8/3k4/8/8/8/3K4 w - - 0 1");
+        assertOutcome(Bitbase.Outcome.DRAW, "8/8/8/3k4/8/8/8/2NK4 w - - 0 1");
+        assertNull(Fen.parse(Fen.STARTING_POSITION).getEndgameOutcome());
+    }
+
+    @Test
+    void coversOnlyPositionsWithOneKingEach() {
+        assertNull(Fen.parse("8/8/8/8/8/8/8/RR6 w - - 0 1").getEndgameOutcome());
+        assertNull(Fen.parse("8/8/8/8/8/8/8/R3K3 w - - 0 1").getEndgameOutcome());
+        assertNull(Fen.parse("8/8/8/4k3/8/8/8/K3K3 w - - 0 1").getEndgameOutcome());
+    }
+
+    @Test
+    void agreesWithTheMovesOfRandomPositions() {
+        Random random = new Random(11);
+        for (Bitbase.Ending ending : Bitbase.Ending.values()) {
+            int checked = 0;
+            while (checked < 2000) {
+                ChessGame.TeamColor strong = random.nextBoolean() ? ChessGame.TeamColor.WHITE : ChessGame.TeamColor.BLACK;
+                ChessGame.TeamColor turn = random.nextBoolean() ? ChessGame.TeamColor.WHITE : ChessGame.TeamColor.BLACK;
+                ChessGame game = position(ending, strong, turn, random.nextInt(64), random.nextInt(64), random.nextInt(64));
+                if (game == null) {
+                    continue;
+                }
+                assertEquals(outcomeByMoves(game), game.getEndgameOutcome(), Fen.format(game));
+                checked++;
+            }
+        }
+    }
+
+    @Test
+    void writesAndReadsTables() throws IOException {
+        Bitbase table = Bitbase.of(Bitbase.Ending.KRK);
+        Path file = directory.resolve(Bitbase.fileName(Bitbase.Ending.KRK));
+        table.write(file);
+        assertEquals(64 * 1024, Files.size(file));
+        Bitbase read = Bitbase.read(file, Bitbase.Ending.KRK);
+        for (int index = 0; index < 64 * 64 * 64; index++) {
+            assertEquals(table.isWin(true, index >>> 12, (index >>> 6) & 63, index & 63),
+                    read.isWin(true, index >>> 12, (index >>> 6) & 63, index & 63));
+        }
+        Files.write(file, new byte[100]);
+        assertThrows(IllegalArgumentException.class, () -> Bitbase.read(file, Bitbase.Ending.KRK));
+    }
+
+    private static void assertOutcome(Bitbase.Outcome expected, String fen) {
+        assertEquals(expected, Fen.parse(fen).getEndgameOutcome(), fen);
+    }
+
+    /**
+     * @return the outcome one move deeper tables imply: a win if some move leaves the other team
+     * lost, a loss if every move leaves it won
+     */
+    private static Bitbase.Outcome outcomeByMoves(ChessGame game) {
+        ChessGame.TeamColor turn = game.getTeamTurn();
+        MoveList moves = new MoveList();
+        game.legalMoves(turn, moves);
+        if (moves.isEmpty()) {
+            return game.isInCheck(turn) ? Bitbase.Outcome.LOSS : Bitbase.Outcome.DRAW;
+        }
+        boolean drawn = false;
+        for (int i = 0; i < moves.size(); i++) {
+            game.doMove(moves.get(i));
+            Bitbase.Outcome next = game.getEndgameOutcome();
+            game.undoMove();
+            if (next == Bitbase.Outcome.LOSS) {
+                return Bitbase.Outcome.WIN;
+            }
+            drawn |= next == Bitbase.Outcome.DRAW;
+        }
+        return drawn ? Bitbase.Outcome.DRAW : Bitbase.Outcome.LOSS;
+    }
+
+    /**
+     * @return the position, or null if the squares do not make a legal one
+     */
+    private static ChessGame position(Bitbase.Ending ending, ChessGame.TeamColor strong, ChessGame.TeamColor turn,
+                                      int strongKing, int weakKing, int piece) {
+        if (strongKing == weakKing || strongKing == piece || weakKing == piece
+                || (ending == Bitbase.Ending.KPK && (piece < 8 || piece >= 56))) {
+            return null;
+        }
+        ChessGame.TeamColor weak = strong == ChessGame.TeamColor.WHITE ? ChessGame.TeamColor.BLACK
+                : ChessGame.TeamColor.WHITE;
+        ChessBoard board = new ChessBoard();
+        board.addPiece(ChessPosition.of(strongKing), ChessPiece.of(strong, ChessPiece.PieceType.KING));
+        board.addPiece(ChessPosition.of(weakKing), ChessPiece.of(weak, ChessPiece.PieceType.KING));
+        board.addPiece(ChessPosition.of(piece), ChessPiece.of(strong, ending.piece()));
+        ChessGame game = new ChessGame();
+        game.setBoard(board);
+        game.setCastlingRights(0);
+        game.setTeamTurn(turn);
+        ChessGame.TeamColor waiting = turn == ChessGame.TeamColor.WHITE ? ChessGame.TeamColor.BLACK
+                : ChessGame.TeamColor.WHITE;
+        return game.isInCheck(waiting) ? null : game;
+    }
+}
@@ -0,0 +1,70 @@
+package chess;
+
+import org.junit.jupiter.api.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.*;
+public class BitboardMoveGeneratorTest {
+
+    @Test
+    void matchesPieceMovesAtStart() {
+        ChessBoard board = new ChessBoard();
+        board.resetBoard();
+        assertSameMoves(board);
+    }
+
+    @Test
+    void matchesPieceMovesThroughRandomGames() throws InvalidMoveException {
+        Random random = new Random(240);
+        for (int gameNumber = 0; gameNumber < 20; gameNumber++) {
+            ChessGame game = new ChessGame();
+            for (int ply = 0; ply < 120; ply++) {
+                assertSameMoves(game.getBoard());
+                List<ChessMove> legal = new ArrayList<>();
+                for (int square = 0; square < 64; square++) {
+                    ChessPiece piece = game.getBoard().getPiece(square);
+                    if (piece != null && piece.getTeamColor() == game.getTeamTurn()) {
+                        legal.addAll(game.validMoves(new ChessPosition(square / 8 + 1, square % 8 + 1)));
+                    }
+                }
+                if (legal.isEmpty()) {
+                    break;
+                }
+                game.makeMove(legal.get(random.nextInt(legal.size())));
+            }
+        }
+    }
+
+    private int[] packed(Consumer<MoveList> generator) {
+        MoveList list = new MoveList();
+        generator.accept(list);
+        int[] moves = new int[list.size()];
+        for (int i = 0; i < moves.length; i++) {
+            moves[i] = list.get(i);
+        }
+        Arrays.sort(moves);
+        return moves;
+    }
+
+    private void assertSameMoves(ChessBoard board) {
+        for (int square = 0; square < 64; square++) {
+            ChessPiece piece = board.getPiece(square);
+            if (piece != null) {
+                ChessPosition position = new ChessPosition(square / 8 + 1, square % 8 + 1);
+                int index = square;
+                assertEquals(new HashSet<>(piece.pieceMoves(board, position)),
+                        new HashSet<>(BitboardMoveGenerator.pieceMoves(board, position)),
+                        "Different moves for " + piece + " at " + position);
+                assertArrayEquals(packed(list -> piece.pieceMoves(board, index, list)),
+                        packed(list -> BitboardMoveGenerator.pieceMoves(board, index, list)),
+                        "Different packed moves for " + piece + " at " + position);
+            }
+        }
+    }
+}
@@ -0,0 +1,100 @@
+package chess;
+
+import org.junit.jupiter.api.*;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+public class LegalMoveGenerationTest {
+
+    @Test
+    void pinnedPieceStaysOnPinLine() {
+        ChessGame game = new ChessGame();
+        ChessBoard board = new ChessBoard();
+        board.addPiece(new ChessPosition(1, 5), new ChessPiece(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.KING));
+        board.addPiece(new ChessPosition(3, 5), new ChessPiece(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.ROOK));
+        board.addPiece(new ChessPosition(8, 5), new ChessPiece(ChessGame.TeamColor.BLACK, ChessPiece.PieceType.QUEEN));
+        board.addPiece(new ChessPosition(8, 1), new ChessPiece(ChessGame.TeamColor.BLACK, ChessPiece.PieceType.KING));
+        game.setBoard(board);
+
+        for (ChessMove move : game.validMoves(new ChessPosition(3, 5))) {
+            assertEquals(5, move.getEndPosition().getColumn(), "Pinned rook left the file: " + move);
+        }
+        assertEquals(6, game.validMoves(new ChessPosition(3, 5)).size());
+    }
+
+    @Test
+    void noLegalMoveInCheckmateOrStalemate() {
+        ChessGame mated = Fen.parse("R5k1/5ppp/8/8/8/8/8/6K1 b - - 0 1");
+        assertFalse(mated.hasAnyLegalMove(ChessGame.TeamColor.BLACK));
+        assertFalse(mated.legalMoveIterator(ChessGame.TeamColor.BLACK).hasNext());
+        assertTrue(mated.hasAnyLegalMove(ChessGame.TeamColor.WHITE));
+
+        ChessGame stalemate = Fen.parse("7k/5Q2/6K1/8/8/8/8/8 b - - 0 1");
+        assertFalse(stalemate.hasAnyLegalMove(ChessGame.TeamColor.BLACK));
+
+        ChessGame enPassant = Fen.parse("8/8/8/8/k2Pp3/8/8/3K4 b - d3 0 1");
+        assertTrue(enPassant.hasAnyLegalMove(ChessGame.TeamColor.BLACK));
+    }
+
+    @Test
+    void rejectsMovesOffTheBoard() {
+        ChessGame game = new ChessGame();
+        // (4, 0) would wrap around to h3, where the knight on g1 can go
+        assertThrows(InvalidMoveException.class,
+                () -> game.makeMove(new ChessMove(new ChessPosition(1, 7), new ChessPosition(4, 0), null)));
+        assertThrows(InvalidMoveException.class,
+                () -> game.makeMove(new ChessMove(new ChessPosition(1, 7), new ChessPosition(3, 9), null)));
+        assertThrows(InvalidMoveException.class,
+                () -> game.makeMove(new ChessMove(new ChessPosition(0, 7), new ChessPosition(3, 6), null)));
+        assertThrows(IllegalArgumentException.class,
+                () -> PackedMove.encode(new ChessMove(new ChessPosition(1, 7), new ChessPosition(4, 0), null)));
+        assertEquals(Fen.STARTING_POSITION, Fen.format(game));
+    }
+
+    @Test
+    void matchesMakeUnmakeFilterThroughRandomGames() throws InvalidMoveException {
+        Random random = new Random(2024);
+        for (int gameNumber = 0; gameNumber < 30; gameNumber++) {
+            ChessGame game = new ChessGame();
+            for (int ply = 0; ply < 150; ply++) {
+                ChessGame.TeamColor turn = game.getTeamTurn();
+                Set<ChessMove> expected = new HashSet<>();
+                for (ChessMove move : BitboardMoveGenerator.teamMoves(game.getBoard(), turn)) {
+                    game.doMove(move);
+                    if (!game.isInCheck(turn)) {
+                        expected.add(move);
+                    }
+                    game.undoMove();
+                }
+                MoveList packed = new MoveList();
+                game.legalMoves(turn, packed);
+                Set<ChessMove> generated = new HashSet<>();
+                for (int i = 0; i < packed.size(); i++) {
+                    int move = packed.get(i);
+                    if ((move & (PackedMove.CASTLE | PackedMove.EN_PASSANT)) == 0) {
+                        generated.add(PackedMove.toChessMove(move));
+                    } else {
+                        game.doMove(move);
+                        assertFalse(game.isInCheck(turn), "Castling or en passant left the king in check");
+                        game.undoMove();
+                    }
+                }
+                assertEquals(expected, generated, "Legal moves differ at ply " + ply);
+                List<ChessMove> legal = new ArrayList<>(game.legalMoves(turn));
+                List<ChessMove> iterated = new ArrayList<>();
+                game.legalMoveIterator(turn).forEachRemaining(iterated::add);
+                assertEquals(legal, iterated, "Iterator differs at ply " + ply);
+                assertEquals(!legal.isEmpty(), game.hasAnyLegalMove(turn));
+                if (legal.isEmpty()) {
+                    break;
+                }
+                game.makeMove(legal.get(random.nextInt(legal.size())));
+            }
+        }
+    }
+}
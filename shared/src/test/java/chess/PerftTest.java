@@ -0,0 +1,63 @@
+package chess;
+
+import org.junit.jupiter.api.*;
+
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+public class PerftTest {
+    private static final long[] START_COUNTS = {1, 20, 400, 8902, 197281};
+
+    @Test
+    void startingPositionCounts() {
+        Perft perft = new Perft(new ChessGame());
+        for (int depth = 0; depth < START_COUNTS.length; depth++) {
+            assertEquals(START_COUNTS[depth], perft.count(depth), "Wrong count at depth " + depth);
+        }
+    }
+
+    @Test
+    void standardPositionCounts() {
+        assertEquals(97862, new Perft(Fen.parse(
+                "r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1")).count(3));
+        assertEquals(43238, new Perft(Fen.parse(
+                "8/2p5/3p4/KP5r/1R3p1k/8/4P1P1/8 w - - 0 1")).count(4));
+        assertEquals(9467, new Perft(Fen.parse(
+                "r3k2r/Pppp1ppp/1b3nbN/nP6/BBP1P3/q4N2/Pp1P2PP/R2Q1RK1 w kq - 0 1")).count(3));
+        assertEquals(62379, new Perft(Fen.parse(
+                "rnbq1k1r/pp1Pbppp/2p5/8/2B5/8/PPP1NnPP/RNBQK2R w KQ - 1 8")).count(3));
+        assertEquals(89890, new Perft(Fen.parse(
+                "r4rk1/1pp1qppp/p1np1n2/2b1p1B1/2B1P1b1/P1NP1N2/1PP1QPPP/R4RK1 w - - 0 10")).count(3));
+    }
+
+    @Test
+    void undoRestoresCastlingAndEnPassant() {
+        String fen = "r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1";
+        ChessGame game = Fen.parse(fen);
+        new Perft(game).count(3);
+        assertEquals(fen, Fen.format(game));
+        assertEquals(Fen.parse(fen).getZobristKey(), game.getZobristKey());
+        assertEquals(97862, new Perft(game).countHashed(3, 1));
+        assertEquals(97862, new Perft(game).countParallel(3));
+    }
+
+    @Test
+    void modesAgree() {
+        ChessGame game = new ChessGame();
+        long startKey = game.getZobristKey();
+        Perft perft = new Perft(game);
+        assertEquals(START_COUNTS[4], perft.countHashed(4, 1));
+        assertEquals(START_COUNTS[4], perft.countHashed(4, 1), "Counting again from a filled table");
+        assertEquals(START_COUNTS[4], perft.countParallel(4));
+        assertEquals(START_COUNTS[3], perft.countWithCollections(3));
+        assertEquals(startKey, game.getZobristKey(), "Counting left moves on the board");
+    }
+
+    @Test
+    void divideSumsToCount() {
+        Map<ChessMove, Long> divide = new Perft(new ChessGame()).divide(3);
+        assertEquals(20, divide.size());
+        assertEquals(START_COUNTS[3], divide.values().stream().mapToLong(Long::longValue).sum());
+        assertEquals(600, divide.get(ChessMove.of(ChessPosition.of(2, 5), ChessPosition.of(4, 5), null)));
+    }
+}
@@ -0,0 +1,73 @@
+package chess;
+
+import org.junit.jupiter.api.*;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+public class PgnTest {
+
+    @Test
+    void parsesPieceAndPawnMoves() {
+        ChessGame game = new ChessGame();
+        assertMove("e2", "e4", Pgn.parseMove(game, "e4"));
+        assertMove("g1", "f3", Pgn.parseMove(game, "Nf3!"));
+        assertThrows(IllegalArgumentException.class, () -> Pgn.parseMove(game, "e5"));
+        assertThrows(IllegalArgumentException.class, () -> Pgn.parseMove(game, "Qh5"));
+    }
+
+    @Test
+    void parsesCastlingCapturesAndPromotions() {
+        ChessGame game = Fen.parse("r3k2r/1P6/8/3p4/4P3/8/8/R3K2R w KQkq - 0 1");
+        int castle = Pgn.parseMove(game, "O-O");
+        assertMove("e1", "g1", castle);
+        assertNotEquals(0, castle & PackedMove.CASTLE);
+        assertMove("e1", "c1", Pgn.parseMove(game, "0-0-0"));
+        assertMove("e4", "d5", Pgn.parseMove(game, "exd5"));
+        int promotion = Pgn.parseMove(game, "bxa8=N+");
+        assertMove("b7", "a8", promotion);
+        assertEquals(ChessPiece.PieceType.KNIGHT, PackedMove.promotion(promotion));
+        assertEquals(ChessPiece.PieceType.QUEEN, PackedMove.promotion(Pgn.parseMove(game, "b8Q")));
+    }
+
+    @Test
+    void needsDisambiguationWhenTwoPiecesCanMove() {
+        ChessGame game = Fen.parse("4k3/8/8/8/8/8/4K3/R6R w - - 0 1");
+        assertThrows(IllegalArgumentException.class, () -> Pgn.parseMove(game, "Rd1"));
+        assertMove("a1", "d1", Pgn.parseMove(game, "Rad1"));
+        assertMove("h1", "f1", Pgn.parseMove(game, "Rhf1"));
+    }
+
+    @Test
+    void readsGamesSkippingCommentsAndVariations() throws IOException {
+        String pgn = """
+                [Event "Club match"]
+                [White "A [B]"]
+
+                1. e4 {best by test} e5 2. Nf3 (2. f4 exf4) 2... Nc6 $1 ; a comment
+                3. Bb5 1-0
+
+                [Event "Endgame"]
+                [FEN "4k3/8/8/8/8/8/4P3/4K3 w - - 0 1"]
+
+                1.e4 Kd7 *
+                """;
+        List<ChessGame> starts = new ArrayList<>();
+        List<List<String>> games = new ArrayList<>();
+        Pgn.readGames(new StringReader(pgn), (game, moves) -> {
+            starts.add(game);
+            games.add(moves);
+        });
+        assertEquals(List.of(List.of("e4", "e5", "Nf3", "Nc6", "Bb5"), List.of("e4", "Kd7")), games);
+        assertEquals(Fen.STARTING_POSITION, Fen.format(starts.get(0)));
+        assertEquals("4k3/8/8/8/8/8/4P3/4K3 w - - 0 1", Fen.format(starts.get(1)));
+    }
+
+    private static void assertMove(String from, String to, int move) {
+        assertEquals(from, Fen.formatPosition(ChessPosition.of(PackedMove.from(move))));
+        assertEquals(to, Fen.formatPosition(ChessPosition.of(PackedMove.to(move))));
+    }
+}
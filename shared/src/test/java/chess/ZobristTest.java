@@ -0,0 +1,97 @@
+package chess;
+
+import org.junit.jupiter.api.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+public class ZobristTest {
+
+    @Test
+    void incrementalKeyMatchesFreshBoard() throws InvalidMoveException {
+        Random random = new Random(7);
+        ChessGame game = new ChessGame();
+        long startKey = game.getZobristKey();
+        int played = 0;
+        for (int ply = 0; ply < 80; ply++) {
+            assertEquals(rebuild(game.getBoard()).getZobristKey(), game.getBoard().getZobristKey());
+            List<ChessMove> legal = new ArrayList<>(game.legalMoves(game.getTeamTurn()));
+            if (legal.isEmpty()) {
+                break;
+            }
+            game.makeMove(legal.get(random.nextInt(legal.size())));
+            played++;
+        }
+        for (int ply = 0; ply < played; ply++) {
+            game.undoMove();
+        }
+        assertEquals(startKey, game.getZobristKey());
+    }
+
+    @Test
+    void sideToMoveChangesKey() {
+        ChessGame game = new ChessGame();
+        long whiteKey = game.getZobristKey();
+        game.setTeamTurn(ChessGame.TeamColor.BLACK);
+        assertNotEquals(whiteKey, game.getZobristKey());
+        assertEquals(whiteKey ^ game.getZobristKey(), Zobrist.side(ChessGame.TeamColor.BLACK));
+    }
+
+    @Test
+    void castlingAndEnPassantChangeKey() {
+        ChessGame game = new ChessGame();
+        ChessGame noCastling = new ChessGame();
+        noCastling.setCastlingRights(0);
+        assertNotEquals(game.getZobristKey(), noCastling.getZobristKey());
+
+        ChessGame capturable = Fen.parse("4k3/8/8/3pP3/8/8/8/4K3 w - d6 0 1");
+        ChessGame notCapturable = Fen.parse("4k3/8/8/3pP3/8/8/8/4K3 w - - 0 1");
+        assertNotEquals(capturable.getZobristKey(), notCapturable.getZobristKey());
+        assertEquals(Fen.parse("4k3/8/8/3p4/8/8/8/4K3 w - d6 0 1").getZobristKey(),
+                Fen.parse("4k3/8/8/3p4/8/8/8/4K3 w - - 0 1").getZobristKey(),
+                "An en passant square nobody can use should not change the key");
+    }
+
+    @Test
+    void pawnKeyFollowsOnlyPawns() {
+        ChessGame game = new ChessGame();
+        long start = game.getBoard().getPawnZobristKey();
+        game.doMove(ChessMove.of(ChessPosition.of(1, 7), ChessPosition.of(3, 6), null));
+        assertEquals(start, game.getBoard().getPawnZobristKey(), "A knight move keeps the pawn key");
+        game.doMove(ChessMove.of(ChessPosition.of(7, 5), ChessPosition.of(5, 5), null));
+        assertNotEquals(start, game.getBoard().getPawnZobristKey());
+        assertEquals(rebuild(game.getBoard()).getPawnZobristKey(), game.getBoard().getPawnZobristKey());
+        game.undoMove();
+        assertEquals(start, game.getBoard().getPawnZobristKey());
+        assertEquals(Fen.parseBoard("4k3/8/8/8/8/8/PPPPPPPP/4K3").getPawnZobristKey(),
+                Fen.parseBoard("rnbqkbnr/8/8/8/8/8/PPPPPPPP/RNBQKBNR").getPawnZobristKey());
+    }
+
+    @Test
+    void nullMovePassesTheTurnAndUndoRestoresIt() {
+        ChessGame game = Fen.parse("4k3/8/8/3pP3/8/8/8/4K3 w - d6 3 20");
+        long key = game.getZobristKey();
+        game.doNullMove();
+        assertEquals(ChessGame.TeamColor.BLACK, game.getTeamTurn());
+        assertEquals("4k3/8/8/3pP3/8/8/8/4K3 b - - 0 20", Fen.format(game));
+        assertEquals(Fen.parse("4k3/8/8/3pP3/8/8/8/4K3 b - - 0 20").getZobristKey(), game.getZobristKey());
+        game.undoMove();
+        assertEquals(key, game.getZobristKey());
+        assertEquals("4k3/8/8/3pP3/8/8/8/4K3 w - d6 3 20", Fen.format(game));
+
+        ChessGame check = Fen.parse("4k3/8/8/8/8/8/8/r3K3 w - - 0 1");
+        assertThrows(IllegalStateException.class, check::doNullMove);
+    }
+
+    private ChessBoard rebuild(ChessBoard board) {
+        ChessBoard copy = new ChessBoard();
+        for (var entry : board.getBoard().entrySet()) {
+            copy.addPiece(entry.getKey(), entry.getValue());
+        }
+        assertEquals(board, copy);
+        assertEquals(board.hashCode(), copy.hashCode());
+        return copy;
+    }
+}
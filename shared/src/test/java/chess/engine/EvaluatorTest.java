@@ -0,0 +1,129 @@
+package chess.engine;
+
+import chess.*;
+import org.junit.jupiter.api.*;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+public class EvaluatorTest {
+    private static final String[] POSITIONS = {
+            Fen.STARTING_POSITION,
+            "r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1",
+            "8/2p5/3p4/KP5r/1R3p1k/8/4P1P1/8 w - - 0 1",
+            "r3k2r/Pppp1ppp/1b3nbN/nP6/BBP1P3/q4N2/Pp1P2PP/R2Q1RK1 w kq - 0 1",
+            "rnbq1k1r/pp1Pbppp/2p5/8/2B5/8/PPP1NnPP/RNBQK2R w KQ - 1 8",
+    };
+
+    @Test
+    void startingPositionIsEven() {
+        assertEquals(0, Evaluator.evaluate(new ChessGame()));
+    }
+
+    @Test
+    void mirroredPositionScoresTheSame() {
+        for (String fen : POSITIONS) {
+            assertEquals(Evaluator.evaluate(Fen.parse(fen)), Evaluator.evaluate(Fen.parse(mirror(fen))), fen);
+        }
+    }
+
+    @Test
+    void kingBelongsInTheCenterInTheEndgame() {
+        int centered = Evaluator.evaluate(Fen.parse("4k3/8/8/8/4K3/8/8/8 w - - 0 1"));
+        int cornered = Evaluator.evaluate(Fen.parse("4k3/8/8/8/8/8/8/K7 w - - 0 1"));
+        assertTrue(centered > cornered, centered + " <= " + cornered);
+    }
+
+    @Test
+    void pawnStructureTerms() {
+        int none = PawnStructure.evaluate(0L, 0L);
+        assertEquals(0, PawnStructure.middlegame(none));
+        assertEquals(0, PawnStructure.endgame(none));
+
+        int passed = PawnStructure.evaluate(pawns("e6", "d2"), pawns("a7"));
+        int blocked = PawnStructure.evaluate(pawns("e6", "d2"), pawns("d7"));
+        assertTrue(PawnStructure.endgame(passed) > PawnStructure.endgame(blocked));
+
+        int connected = PawnStructure.evaluate(pawns("d4", "e4"), 0L);
+        int isolated = PawnStructure.evaluate(pawns("b4", "e4"), 0L);
+        assertTrue(PawnStructure.endgame(connected) > PawnStructure.endgame(isolated));
+        int doubled = PawnStructure.evaluate(pawns("e3", "e4", "d4"), pawns("d7"));
+        int single = PawnStructure.evaluate(pawns("e4", "d4"), pawns("d7"));
+        assertTrue(PawnStructure.middlegame(doubled) < PawnStructure.middlegame(single));
+
+        int packed = PawnStructure.pack(-37, -1200);
+        assertEquals(-37, PawnStructure.middlegame(packed));
+        assertEquals(-1200, PawnStructure.endgame(packed));
+    }
+
+    @Test
+    void cachedScoreMatchesFreshScore() {
+        ChessGame game = Fen.parse(POSITIONS[1]);
+        Evaluator evaluator = new Evaluator();
+        evaluator.reset(game);
+        int first = evaluator.evaluate();
+        assertEquals(first, evaluator.evaluate());
+        assertEquals(Evaluator.evaluate(game), first);
+    }
+
+    @Test
+    void incrementalScoreMatchesFullEvaluation() {
+        Random random = new Random(18);
+        Evaluator evaluator = new Evaluator();
+        MoveList moves = new MoveList();
+        for (String fen : POSITIONS) {
+            ChessGame game = Fen.parse(fen);
+            evaluator.reset(game);
+            int start = evaluator.evaluate();
+            assertEquals(Evaluator.evaluate(game), start, fen);
+            int played = 0;
+            for (; played < 60; played++) {
+                moves.clear();
+                game.legalMoves(game.getTeamTurn(), moves);
+                if (moves.isEmpty()) {
+                    break;
+                }
+                evaluator.doMove(moves.get(random.nextInt(moves.size())));
+                assertEquals(Evaluator.evaluate(game), evaluator.evaluate(), Fen.format(game));
+            }
+            for (int i = 0; i < played; i++) {
+                evaluator.undoMove();
+                assertEquals(Evaluator.evaluate(game), evaluator.evaluate(), Fen.format(game));
+            }
+            assertEquals(start, evaluator.evaluate());
+        }
+    }
+
+    /**
+     * @return the same position with the colors swapped and the board turned around
+     */
+    private static String mirror(String fen) {
+        String[] fields = fen.split(" ");
+        String[] rows = fields[0].split("/");
+        StringBuilder placement = new StringBuilder();
+        for (int i = rows.length - 1; i >= 0; i--) {
+            placement.append(swapCase(rows[i])).append(i > 0 ? "/" : "");
+        }
+        String enPassant = fields[3].equals("-") ? "-"
+                : "" + fields[3].charAt(0) + (char) ('9' - fields[3].charAt(1) + '0');
+        return placement + (fields[1].equals("w") ? " b " : " w ") + swapCase(fields[2]) + " " + enPassant
+                + " " + fields[4] + " " + fields[5];
+    }
+
+    private static String swapCase(String text) {
+        StringBuilder swapped = new StringBuilder();
+        for (char c : text.toCharArray()) {
+            swapped.append(Character.isUpperCase(c) ? Character.toLowerCase(c) : Character.toUpperCase(c));
+        }
+        return swapped.toString();
+    }
+
+    private static long pawns(String... squares) {
+        long pawns = 0L;
+        for (String name : squares) {
+            ChessPosition position = Fen.parsePosition(name);
+            pawns |= 1L << ((position.getRow() - 1) * 8 + position.getColumn() - 1);
+        }
+        return pawns;
+    }
+}
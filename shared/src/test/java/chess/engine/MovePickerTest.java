@@ -0,0 +1,104 @@
+package chess.engine;
+
+import chess.*;
+import org.junit.jupiter.api.*;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+public class MovePickerTest {
+    private static final String[] POSITIONS = {
+            Fen.STARTING_POSITION,
+            "r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1",
+            "8/2p5/3p4/KP5r/1R3p1k/8/4P1P1/8 w - - 0 1",
+            "r3k2r/Pppp1ppp/1b3nbN/nP6/BBP1P3/q4N2/Pp1P2PP/R2Q1RK1 w kq - 0 1",
+            "rnbq1k1r/pp1Pbppp/2p5/8/2B5/8/PPP1NnPP/RNBQK2R w KQ - 1 8",
+            "rnbqkbnr/ppp1p1pp/8/3pPp2/8/8/PPPP1PPP/RNBQKBNR w KQkq f6 0 3",
+    };
+
+    @Test
+    void picksEveryLegalMoveOnce() {
+        for (String fen : POSITIONS) {
+            ChessGame game = Fen.parse(fen);
+            MoveList legal = new MoveList();
+            game.legalMoves(game.getTeamTurn(), legal);
+            MoveHistory history = new MoveHistory();
+            ChessBoard board = game.getBoard();
+            int killer = legal.get(legal.size() - 1);
+            history.cutoff(0, board.getPiece(PackedMove.from(killer)), killer, 3);
+            history.cutoff(0, board.getPiece(PackedMove.from(legal.get(1))), legal.get(1), 3);
+
+            MovePicker picker = new MovePicker(history);
+            picker.reset(game, 0, legal.get(legal.size() / 2), false);
+            Set<Integer> picked = new HashSet<>();
+            for (int move = picker.next(); move != PackedMove.NONE; move = picker.next()) {
+                assertTrue(legal.contains(move), fen + " picked an illegal move");
+                assertTrue(picked.add(PackedMove.withoutFlags(move)), fen + " picked a move twice");
+            }
+            assertEquals(legal.size(), picked.size(), fen);
+        }
+    }
+
+    @Test
+    void tableMoveFirstThenBestCapture() {
+        ChessGame game = Fen.parse("4k3/8/2q5/3p4/4P3/5N2/8/4K3 w - - 0 1");
+        int quiet = PackedMove.encode(square("e1"), square("d1"), null, 0);
+        MovePicker picker = new MovePicker(new MoveHistory());
+        picker.reset(game, 0, quiet, false);
+        assertEquals(PackedMove.withoutFlags(quiet), PackedMove.withoutFlags(picker.next()));
+        int capture = picker.next();
+        assertTrue(PackedMove.isCapture(capture));
+        assertEquals(square("e4"), PackedMove.from(capture));
+    }
+
+    @Test
+    void ignoresIllegalTableMove() {
+        ChessGame game = Fen.parse("4k3/8/8/8/8/8/8/4K2R w K - 0 1");
+        MovePicker picker = new MovePicker(new MoveHistory());
+        picker.reset(game, 0, PackedMove.encode(square("e2"), square("e4"), null, 0), false);
+        int count = 0;
+        for (int move = picker.next(); move != PackedMove.NONE; move = picker.next()) {
+            count++;
+        }
+        MoveList legal = new MoveList();
+        game.legalMoves(ChessGame.TeamColor.WHITE, legal);
+        assertEquals(legal.size(), count);
+    }
+
+    @Test
+    void staticExchange() {
+        assertEquals(220, exchange("4k3/8/2p5/3n4/4P3/8/8/4K3 w - - 0 1", "e4", "d5"));
+        assertEquals(-220, exchange("4k3/8/2p5/3p4/8/4N3/8/4K3 w - - 0 1", "e3", "d5"));
+        assertEquals(500, exchange("4k3/8/8/3r4/8/8/8/3QK3 w - - 0 1", "d1", "d5"));
+        assertEquals(100, exchange("1k2r3/8/8/4p3/8/8/4R3/4R1K1 w - - 0 1", "e2", "e5"));
+        assertEquals(-400, exchange("1k2r3/8/8/4p3/8/8/4R3/6K1 w - - 0 1", "e2", "e5"));
+    }
+
+    @Test
+    void quiescenceSkipsLosingCaptures() {
+        ChessGame game = Fen.parse("4k3/8/2p5/3p4/8/8/8/3QK3 w - - 0 1");
+        MovePicker picker = new MovePicker(new MoveHistory());
+        picker.reset(game, 0, PackedMove.NONE, true);
+        assertEquals(PackedMove.NONE, picker.next());
+        picker.reset(game, 0, PackedMove.NONE, false);
+        int last = PackedMove.NONE;
+        for (int move = picker.next(); move != PackedMove.NONE; move = picker.next()) {
+            last = move;
+        }
+        assertTrue(PackedMove.isCapture(last), "the losing capture comes last");
+    }
+
+    private static int exchange(String fen, String from, String to) {
+        ChessGame game = Fen.parse(fen);
+        MovePicker picker = new MovePicker(new MoveHistory());
+        picker.reset(game, 0, PackedMove.NONE, false);
+        return picker.staticExchange(PackedMove.encode(square(from), square(to), null,
+                PackedMove.CAPTURE));
+    }
+
+    private static int square(String name) {
+        ChessPosition position = Fen.parsePosition(name);
+        return (position.getRow() - 1) * 8 + position.getColumn() - 1;
+    }
+}
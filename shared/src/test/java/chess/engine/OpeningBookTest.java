@@ -0,0 +1,113 @@
+package chess.engine;
+
+import chess.*;
+import org.junit.jupiter.api.*;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+public class OpeningBookTest {
+    private static final String GAMES = """
+            1. e4 e5 2. Nf3 Nc6 1-0
+            1. e4 c5 2. Nf3 d6 0-1
+            1. d4 d5 1/2-1/2
+            1. e4 e5 2. Bc4 *
+            1. e4 e5 2. Qh5 Ke7 3. Qxz9 *
+            """;
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void looksUpMovesByHowOftenTheyWerePlayed() throws IOException {
+        OpeningBook book = build(OpeningBookBuilder.DEFAULT_MAX_PLY);
+        List<OpeningBook.BookMove> moves = book.lookup(new ChessGame());
+        assertEquals(2, moves.size());
+        assertEquals(move("e2", "e4"), moves.get(0).move());
+        assertEquals(4, moves.get(0).weight());
+        assertEquals(move("d2", "d4"), moves.get(1).move());
+        assertEquals(1, moves.get(1).weight());
+
+        ChessGame game = new ChessGame();
+        game.doMove(move("e2", "e4"));
+        game.doMove(move("e7", "e5"));
+        List<OpeningBook.BookMove> replies = book.lookup(game);
+        assertEquals(3, replies.size());
+        assertEquals(move("g1", "f3"), replies.get(0).move());
+    }
+
+    @Test
+    void countsGamesUpToAnUnreadableMove() throws IOException {
+        OpeningBookBuilder builder = new OpeningBookBuilder();
+        builder.addPgn(new StringReader(GAMES));
+        assertEquals(5, builder.games());
+        assertEquals(1, builder.skippedGames());
+        builder.write(directory.resolve("book.bin"));
+        assertEquals(builder.entries() * OpeningBook.ENTRY_BYTES, Files.size(directory.resolve("book.bin")));
+    }
+
+    @Test
+    void skipsGamesWithAnUnreadableFen() throws IOException {
+        OpeningBookBuilder builder = new OpeningBookBuilder();
+        builder.addPgn(new StringReader("""
+                1. e4 e5 *
+
+                [FEN "not a position"]
+
+                1. Ke2 *
+
+                1. d4 d5 *
+                """));
+        assertEquals(3, builder.games());
+        assertEquals(1, builder.skippedGames());
+        assertEquals(4, builder.entries());
+    }
+
+    @Test
+    void missesPositionsOutsideTheBook() throws IOException {
+        OpeningBook book = build(1);
+        ChessGame game = new ChessGame();
+        game.doMove(move("e2", "e4"));
+        assertTrue(book.lookup(game).isEmpty());
+        assertNull(book.pick(game, new Random(1)));
+        assertEquals(2, book.size());
+    }
+
+    @Test
+    void picksOnlyBookMoves() throws IOException {
+        OpeningBook book = build(OpeningBookBuilder.DEFAULT_MAX_PLY);
+        Random random = new Random(7);
+        int e4 = 0;
+        for (int i = 0; i < 200; i++) {
+            ChessMove move = book.pick(new ChessGame(), random);
+            assertTrue(move.equals(move("e2", "e4")) || move.equals(move("d2", "d4")));
+            e4 += move.equals(move("e2", "e4")) ? 1 : 0;
+        }
+        assertTrue(e4 > 120, "e4 was picked " + e4 + " times");
+    }
+
+    @Test
+    void rejectsFilesThatAreNotBooks() throws IOException {
+        Path file = directory.resolve("broken.bin");
+        Files.write(file, new byte[OpeningBook.ENTRY_BYTES + 3]);
+        assertThrows(IllegalArgumentException.class, () -> OpeningBook.open(file));
+    }
+
+    private OpeningBook build(int maxPly) throws IOException {
+        OpeningBookBuilder builder = new OpeningBookBuilder(maxPly);
+        builder.addPgn(new StringReader(GAMES));
+        Path file = directory.resolve("book-" + maxPly + ".bin");
+        builder.write(file);
+        return OpeningBook.open(file);
+    }
+
+    private static ChessMove move(String from, String to) {
+        return new ChessMove(Fen.parsePosition(from), Fen.parsePosition(to), null);
+    }
+}
@@ -0,0 +1,93 @@
+package chess.engine;
+
+import chess.*;
+import org.junit.jupiter.api.*;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+public class ParallelSearcherTest {
+
+    @Test
+    void findsMateInTwo() {
+        ChessGame game = Fen.parse("r2qkb1r/pp2nppp/3p4/2pNN1B1/2BnP3/3P4/PPP2PPP/R2bK2R w KQkq - 1 1");
+        try (ParallelSearcher searcher = new ParallelSearcher(4, new TranspositionTable(8))) {
+            SearchResult result = searcher.search(game, SearchLimits.depth(5));
+            assertEquals(Searcher.MATE - 3, result.score());
+            assertEquals(ChessMove.of(ChessPosition.of(5, 4), ChessPosition.of(6, 6), null), result.move());
+        }
+    }
+
+    @Test
+    void countsNodesOfEveryThread() {
+        ChessGame game = Fen.parse("r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1");
+        String fen = Fen.format(game);
+        try (ParallelSearcher searcher = new ParallelSearcher(3, new TranspositionTable(8))) {
+            SearchResult result = searcher.search(game, SearchLimits.depth(4));
+            assertEquals(4, result.depth());
+            assertTrue(result.nodes() > 0);
+            assertNotNull(result.move());
+        }
+        assertEquals(fen, Fen.format(game));
+    }
+
+    @Test
+    void leavesAgingAPassedInTableToItsOwner() {
+        TranspositionTable table = new TranspositionTable(1);
+        int generation = table.generation();
+        try (ParallelSearcher searcher = new ParallelSearcher(4, table)) {
+            searcher.search(new ChessGame(), SearchLimits.depth(3));
+            searcher.search(new ChessGame(), SearchLimits.depth(3));
+        }
+        assertEquals(generation, table.generation());
+    }
+
+    @Test
+    void stopsFromAnotherThread() throws Exception {
+        try (ParallelSearcher searcher = new ParallelSearcher(2, new TranspositionTable(8))) {
+            CompletableFuture<SearchResult> running = CompletableFuture.supplyAsync(
+                    () -> searcher.search(new ChessGame(), SearchLimits.depth(SearchLimits.MAX_DEPTH)));
+            Thread.sleep(200);
+            searcher.stop();
+            SearchResult result = running.get(5, TimeUnit.SECONDS);
+            assertNotNull(result.move());
+            assertTrue(result.depth() >= 1);
+        }
+    }
+
+    @Test
+    void singleThreadNeedsNoHelpers() {
+        try (ParallelSearcher searcher = new ParallelSearcher(1, new TranspositionTable(1))) {
+            ChessMove move = searcher.bestMove(Fen.parse("4k3/8/8/3q4/8/8/8/3RK3 w - - 0 1"), SearchLimits.depth(3));
+            assertEquals(ChessMove.of(ChessPosition.of(1, 4), ChessPosition.of(5, 4), null), move);
+        }
+    }
+
+    @Test
+    void closedSearcherCannotSearch() {
+        ParallelSearcher searcher = new ParallelSearcher(2, new TranspositionTable(1));
+        searcher.close();
+        assertThrows(IllegalStateException.class, () -> searcher.search(new ChessGame(), SearchLimits.depth(1)));
+        assertThrows(IllegalArgumentException.class, () -> new ParallelSearcher(0, new TranspositionTable(1)));
+    }
+
+    @Test
+    void reportsMainSearchProgressAndStopsWhenCancelled() {
+        ChessGame game = Fen.parse("r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1");
+        try (ParallelSearcher searcher = new ParallelSearcher(2, new TranspositionTable(8))) {
+            SearchController[] controller = new SearchController[1];
+            int[] reports = new int[1];
+            controller[0] = new SearchController(progress -> {
+                reports[0]++;
+                if (progress.depth() == 2) {
+                    controller[0].cancel();
+                }
+            });
+            SearchResult result = searcher.search(game, SearchLimits.depth(30), controller[0]);
+            assertEquals(2, reports[0]);
+            assertTrue(result.depth() >= 2 && result.depth() < 30, "Depth " + result.depth());
+            assertNotNull(result.move());
+        }
+    }
+}
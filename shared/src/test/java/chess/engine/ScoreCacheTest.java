@@ -0,0 +1,28 @@
+package chess.engine;
+
+import org.junit.jupiter.api.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+public class ScoreCacheTest {
+
+    @Test
+    void storeThenProbe() {
+        ScoreCache cache = new ScoreCache(1024);
+        cache.store(0xDEAD_BEEF_0000_0001L, -42);
+        cache.store(77L, 0);
+        assertEquals(-42, cache.probe(0xDEAD_BEEF_0000_0001L));
+        assertEquals(0, cache.probe(77L));
+    }
+
+    @Test
+    void missesUnknownAndReplacedKeys() {
+        ScoreCache cache = new ScoreCache(1024);
+        assertEquals(ScoreCache.MISS, cache.probe(5L));
+        cache.store(5L, 10);
+        cache.store(5L + 1024, 20);
+        assertEquals(ScoreCache.MISS, cache.probe(5L));
+        assertEquals(20, cache.probe(5L + 1024));
+        cache.clear();
+        assertEquals(ScoreCache.MISS, cache.probe(5L + 1024));
+    }
+}
@@ -0,0 +1,207 @@
+package chess.engine;
+
+import chess.*;
+import org.junit.jupiter.api.*;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+public class SearcherTest {
+
+    @Test
+    void findsMateInOne() {
+        ChessGame game = Fen.parse("6k1/5ppp/8/8/8/8/8/R5K1 w - - 0 1");
+        SearchResult result = new Searcher().search(game, SearchLimits.depth(4));
+        assertEquals(ChessMove.of(ChessPosition.of(1, 1), ChessPosition.of(8, 1), null), result.move());
+        assertTrue(result.isMate());
+        assertEquals(Searcher.MATE - 1, result.score());
+    }
+
+    @Test
+    void findsMateInTwo() {
+        ChessGame game = Fen.parse("r2qkb1r/pp2nppp/3p4/2pNN1B1/2BnP3/3P4/PPP2PPP/R2bK2R w KQkq - 1 1");
+        SearchResult result = new Searcher().search(game, SearchLimits.depth(5));
+        assertEquals(Searcher.MATE - 3, result.score());
+        assertEquals(ChessMove.of(ChessPosition.of(5, 4), ChessPosition.of(6, 6), null), result.move());
+    }
+
+    @Test
+    void capturesHangingQueen() {
+        ChessGame game = Fen.parse("4k3/8/8/3q4/8/8/8/3RK3 w - - 0 1");
+        ChessMove move = new Searcher().bestMove(game, SearchLimits.depth(3));
+        assertEquals(ChessMove.of(ChessPosition.of(1, 4), ChessPosition.of(5, 4), null), move);
+    }
+
+    @Test
+    void leavesGameUnchanged() {
+        ChessGame game = new ChessGame();
+        String fen = Fen.format(game);
+        new Searcher().search(game, SearchLimits.depth(3));
+        assertEquals(fen, Fen.format(game));
+    }
+
+    @Test
+    void sharedTableSpeedsUpRepeatedSearch() {
+        ChessGame game = Fen.parse("r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1");
+        TranspositionTable table = new TranspositionTable(8);
+        SearchResult first = new Searcher(table).search(game, SearchLimits.depth(4));
+        SearchResult second = new Searcher(table).search(game, SearchLimits.depth(4));
+        assertEquals(first.move(), second.move());
+        assertTrue(second.nodes() < first.nodes() / 2,
+                "Second search visited " + second.nodes() + " of " + first.nodes() + " nodes");
+    }
+
+    @Test
+    void keepsAStopThatComesBeforeTheSearch() {
+        Searcher searcher = new Searcher();
+        searcher.stop();
+        SearchResult stopped = searcher.search(new ChessGame(), SearchLimits.depth(SearchLimits.MAX_DEPTH));
+        assertNotNull(stopped.move());
+        assertTrue(stopped.depth() < 6, "Searched to depth " + stopped.depth());
+        assertEquals(3, searcher.search(new ChessGame(), SearchLimits.depth(3)).depth());
+    }
+
+    @Test
+    void leavesAgingASharedTableToItsOwner() {
+        TranspositionTable table = new TranspositionTable(1);
+        int generation = table.generation();
+        new Searcher(table).search(Fen.parse(Fen.STARTING_POSITION), SearchLimits.depth(2));
+        new Searcher(table).search(Fen.parse(Fen.STARTING_POSITION), SearchLimits.depth(2));
+        assertEquals(generation, table.generation());
+    }
+
+    @Test
+    void findsMateWithEachPruningAlone() {
+        ChessGame game = Fen.parse("r2qkb1r/pp2nppp/3p4/2pNN1B1/2BnP3/3P4/PPP2PPP/R2bK2R w KQkq - 1 1");
+        SearchOptions[] options = {SearchOptions.NONE, new SearchOptions(true, false, false, false),
+                new SearchOptions(false, true, false, false), new SearchOptions(false, false, true, false),
+                new SearchOptions(false, false, false, true), SearchOptions.ALL};
+        for (SearchOptions option : options) {
+            SearchResult result = new Searcher(new TranspositionTable(4), option).search(game, SearchLimits.depth(5));
+            assertEquals(Searcher.MATE - 3, result.score(), option.toString());
+        }
+    }
+
+    @Test
+    void pruningSearchesFewerNodes() {
+        ChessGame game = Fen.parse("r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1");
+        long full = new Searcher(new TranspositionTable(8), SearchOptions.NONE)
+                .search(game, SearchLimits.depth(5)).nodes();
+        long pruned = new Searcher(new TranspositionTable(8), SearchOptions.ALL)
+                .search(game, SearchLimits.depth(5)).nodes();
+        assertTrue(pruned < full, pruned + " >= " + full);
+    }
+
+    @Test
+    void scoresTradesIntoWonEndingsFromTheBitbase() {
+        Bitbase.load();
+        ChessGame game = Fen.parse("3k3r/8/3K4/3P4/8/8/8/7R w - - 0 1");
+        SearchResult result = new Searcher().search(game, SearchLimits.depth(3));
+        assertEquals(ChessMove.of(ChessPosition.of(1, 8), ChessPosition.of(8, 8), null), result.move());
+        assertTrue(result.score() >= Searcher.KNOWN_WIN, "Scored " + result.score());
+    }
+
+    @Test
+    void keepsTheWinInsideAnEnding() {
+        Bitbase.load();
+        for (String fen : new String[]{"4k3/8/4K3/4P3/8/8/8/8 w - - 0 1", "k7/8/1K6/8/8/8/8/1Q6 w - - 0 1"}) {
+            ChessGame game = Fen.parse(fen);
+            for (int depth = 1; depth <= 4; depth++) {
+                ChessGame played = game.copy();
+                played.doMove(new Searcher().bestMove(game, SearchLimits.depth(depth)));
+                assertEquals(Bitbase.Outcome.LOSS, played.getEndgameOutcome(), fen + " at depth " + depth);
+            }
+        }
+    }
+
+    @Test
+    void reportsEveryIterationWithItsPrincipalVariation() throws InvalidMoveException {
+        ChessGame game = Fen.parse("r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1");
+        List<SearchProgress> reports = new ArrayList<>();
+        SearchResult result = new Searcher().search(game, SearchLimits.depth(5), new SearchController(reports::add));
+        assertEquals(5, reports.size());
+        for (int i = 0; i < reports.size(); i++) {
+            SearchProgress progress = reports.get(i);
+            assertEquals(i + 1, progress.depth());
+            assertFalse(progress.principalVariation().isEmpty());
+            assertTrue(progress.principalVariation().size() <= progress.depth());
+            ChessGame line = game.copy();
+            for (ChessMove move : progress.principalVariation()) {
+                line.makeMove(move);
+            }
+        }
+        SearchProgress last = reports.get(reports.size() - 1);
+        assertEquals(result.move(), last.principalVariation().get(0));
+        assertEquals(result.score(), last.score());
+        assertTrue(last.nodesPerSecond() > 0);
+    }
+
+    @Test
+    void stopsWhenCancelled() {
+        ChessGame game = new ChessGame();
+        SearchController cancelled = new SearchController();
+        cancelled.cancel();
+        SearchResult early = new Searcher().search(game, SearchLimits.time(60_000), cancelled);
+        assertTrue(early.timeMillis() < 1000, "Took " + early.timeMillis() + " ms");
+        assertNotNull(early.move());
+
+        SearchController[] controller = new SearchController[1];
+        controller[0] = new SearchController(progress -> {
+            if (progress.depth() == 3) {
+                controller[0].cancel();
+            }
+        });
+        SearchResult result = new Searcher().search(game, SearchLimits.depth(20), controller[0]);
+        assertEquals(3, result.depth());
+        assertTrue(controller[0].isCancelled());
+    }
+
+    @Test
+    void startsNoIterationAfterTheSoftLimit() {
+        ChessGame game = Fen.parse("r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1");
+        SearchResult result = new Searcher().search(game, SearchLimits.time(60_000).withSoftTime(100));
+        assertTrue(result.timeMillis() < 10_000, "Took " + result.timeMillis() + " ms");
+        assertTrue(result.depth() >= 1);
+    }
+
+    @Test
+    void plansTimeFromTheClock() {
+        SearchLimits minute = SearchLimits.clock(60_000, 0);
+        assertEquals(2_000, minute.softTimeMillis());
+        assertEquals(8_000, minute.timeMillis());
+        SearchLimits increment = SearchLimits.clock(30_000, 2_000);
+        assertEquals(2_500, increment.softTimeMillis());
+        SearchLimits shortOfTime = SearchLimits.clock(90, 0);
+        assertTrue(shortOfTime.softTimeMillis() <= shortOfTime.timeMillis());
+        assertTrue(shortOfTime.timeMillis() <= 30);
+        assertThrows(IllegalArgumentException.class, () -> SearchLimits.clock(0, 1_000));
+    }
+
+    @Test
+    void stopsAtNodeLimit() {
+        SearchResult result = new Searcher().search(new ChessGame(), SearchLimits.nodes(2000));
+        assertNotNull(result.move());
+        assertTrue(result.nodes() <= 2000, "Visited " + result.nodes() + " nodes");
+    }
+
+    @Test
+    void noMoveWhenGameIsOver() {
+        SearchResult mated = new Searcher().search(Fen.parse("R5k1/5ppp/8/8/8/8/8/6K1 b - - 0 1"),
+                SearchLimits.depth(2));
+        assertNull(mated.move());
+        assertEquals(-Searcher.MATE, mated.score());
+        SearchResult stalemate = new Searcher().search(Fen.parse("7k/5Q2/6K1/8/8/8/8/8 b - - 0 1"),
+                SearchLimits.depth(2));
+        assertNull(stalemate.move());
+        assertEquals(0, stalemate.score());
+    }
+
+    @Test
+    void returnsLegalMoveWithinTime() throws InvalidMoveException {
+        ChessGame game = Fen.parse("r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1");
+        SearchResult result = new Searcher().search(game, SearchLimits.time(200));
+        assertTrue(result.timeMillis() < 1000, "Took " + result.timeMillis() + " ms");
+        game.makeMove(result.move());
+    }
+}
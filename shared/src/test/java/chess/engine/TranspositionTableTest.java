@@ -0,0 +1,72 @@
+package chess.engine;
+
+import chess.PackedMove;
+import org.junit.jupiter.api.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+public class TranspositionTableTest {
+
+    @Test
+    void storeThenProbe() {
+        TranspositionTable table = new TranspositionTable(1);
+        int move = PackedMove.encode(12, 28, null, 0);
+        table.store(0x1234_5678_9ABC_DEF0L, move, -250, 7, TranspositionTable.LOWER);
+
+        long entry = table.probe(0x1234_5678_9ABC_DEF0L);
+        assertNotEquals(0L, entry);
+        assertEquals(move, TranspositionTable.move(entry));
+        assertEquals(-250, TranspositionTable.score(entry));
+        assertEquals(7, TranspositionTable.depth(entry));
+        assertEquals(TranspositionTable.LOWER, TranspositionTable.bound(entry));
+    }
+
+    @Test
+    void missesUnknownKey() {
+        TranspositionTable table = new TranspositionTable(1);
+        table.store(42L, PackedMove.encode(1, 2, null, 0), 10, 3, TranspositionTable.EXACT);
+        assertEquals(0L, table.probe(43L));
+        assertEquals(0L, table.probe(42L + table.capacity() * 2L));
+    }
+
+    @Test
+    void keepsDeepestAndNewestInBucket() {
+        TranspositionTable table = new TranspositionTable(1);
+        long stride = table.capacity() / 2;
+        long deep = 5L;
+        long shallow = deep + stride;
+        long newer = deep + 2 * stride;
+        table.store(deep, PackedMove.NONE, 1, 10, TranspositionTable.EXACT);
+        table.store(shallow, PackedMove.NONE, 2, 2, TranspositionTable.EXACT);
+        assertEquals(10, TranspositionTable.depth(table.probe(deep)));
+        assertEquals(2, TranspositionTable.depth(table.probe(shallow)));
+
+        table.store(newer, PackedMove.NONE, 3, 1, TranspositionTable.EXACT);
+        assertNotEquals(0L, table.probe(deep));
+        assertEquals(0L, table.probe(shallow));
+        assertEquals(3, TranspositionTable.score(table.probe(newer)));
+
+        table.newSearch();
+        table.store(shallow, PackedMove.NONE, 4, 1, TranspositionTable.EXACT);
+        assertEquals(0L, table.probe(deep));
+        assertEquals(4, TranspositionTable.score(table.probe(shallow)));
+    }
+
+    @Test
+    void keepsMoveWhenStoringWithoutOne() {
+        TranspositionTable table = new TranspositionTable(1);
+        int move = PackedMove.encode(8, 16, null, 0);
+        table.store(99L, move, 5, 2, TranspositionTable.LOWER);
+        table.store(99L, PackedMove.NONE, -5, 3, TranspositionTable.UPPER);
+        long entry = table.probe(99L);
+        assertEquals(move, TranspositionTable.move(entry));
+        assertEquals(3, TranspositionTable.depth(entry));
+    }
+
+    @Test
+    void clearEmptiesTable() {
+        TranspositionTable table = new TranspositionTable(1);
+        table.store(7L, PackedMove.NONE, 0, 1, TranspositionTable.EXACT);
+        table.clear();
+        assertEquals(0L, table.probe(7L));
+    }
+}